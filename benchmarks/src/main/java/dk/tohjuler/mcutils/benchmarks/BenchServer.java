@@ -0,0 +1,92 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.inventory.ItemFactory;
+
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+/**
+ * A mocked Bukkit server, for benchmarks that need one.
+ * <br>
+ * Only the parts used by the benchmarks are implemented,
+ * other methods return null or the default value of the primitive type.
+ * Items have no meta.
+ */
+public final class BenchServer {
+    private static final Logger LOGGER = Logger.getLogger("BenchServer");
+
+    private BenchServer() {
+    }
+
+    /**
+     * Sets the mocked server as the Bukkit server, if no server is set.
+     */
+    public static synchronized void install() {
+        if (Bukkit.getServer() != null) return;
+
+        ItemFactory itemFactory = proxy(ItemFactory.class, (method, args) -> {
+            switch (method) {
+                case "equals":
+                    // equals(meta1, meta2), all items have no meta
+                    return args.length == 2 || args[0] == null;
+                case "isApplicable":
+                    return true;
+                case "asMetaFor":
+                    return args[0];
+                default:
+                    return null;
+            }
+        });
+
+        Bukkit.setServer(proxy(Server.class, (method, args) -> {
+            switch (method) {
+                case "getItemFactory":
+                    return itemFactory;
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                    return "BenchServer";
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "1.9-R0.1-SNAPSHOT";
+                default:
+                    return null;
+            }
+        }));
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                BenchServer.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object[] params = args != null ? args : new Object[0];
+                    if (method.getName().equals("hashCode") && params.length == 0) return System.identityHashCode(proxy);
+                    if (method.getName().equals("toString") && params.length == 0) return type.getSimpleName() + "Proxy";
+
+                    Object res = handler.handle(method.getName(), params);
+                    if (res == null && method.getReturnType().isPrimitive()) return defaultValue(method.getReturnType());
+                    return res;
+                }
+        ));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+}
@@ -0,0 +1,79 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import dk.tohjuler.mcutils.strings.ColorUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ColorUtils#colorize(String)} with legacy codes, hex colors and gradients.
+ * The parser is measured with {@link ColorUtils#colorizeUncached(String, char)}, the cache with {@link ColorUtils#colorize(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorUtilsBenchmark {
+    private final List<String> lore = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < 20; i++) {
+            switch (i % 4) {
+                case 0:
+                    lore.add("&7Line " + i + " &8- &aSome information about the item");
+                    break;
+                case 1:
+                    lore.add("&{#ff8800}Price: &f" + i + " coins");
+                    break;
+                case 2:
+                    lore.add("<#ff0000>Gradient line number " + i + "</#0000ff>");
+                    break;
+                default:
+                    lore.add("<&c>Legacy gradient " + i + "</&9> &7and more");
+            }
+        }
+    }
+
+    @Benchmark
+    public String legacy() {
+        return ColorUtils.colorizeUncached("&6&lInformation &7- &aClick to open", '&');
+    }
+
+    @Benchmark
+    public String hex() {
+        return ColorUtils.colorizeUncached("&{#ff8800}Orange &{#00ff88}Green", '&');
+    }
+
+    @Benchmark
+    public String gradient() {
+        return ColorUtils.colorizeUncached("<#ff0000>A long gradient title for a gui</#0000ff> &7and more", '&');
+    }
+
+    @Benchmark
+    public String legacyGradient() {
+        return ColorUtils.colorizeUncached("<&c>Legacy gradient text</&9>", '&');
+    }
+
+    @Benchmark
+    public String shortName() {
+        return ColorUtils.colorizeUncached("&aShop", '&');
+    }
+
+    @Benchmark
+    public void loreBlock(Blackhole blackhole) {
+        for (String line : lore)
+            blackhole.consume(ColorUtils.colorizeUncached(line, '&'));
+    }
+
+    @Benchmark
+    public void loreBlockCached(Blackhole blackhole) {
+        for (String line : lore)
+            blackhole.consume(ColorUtils.colorize(line));
+    }
+}
@@ -0,0 +1,42 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import dk.tohjuler.mcutils.flags.Flag;
+import dk.tohjuler.mcutils.flags.FlagParser;
+import dk.tohjuler.mcutils.flags.ValueFlag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link FlagParser#parse(String)}, with declared and added flags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlagParserBenchmark {
+
+    @Benchmark
+    public String addedFlag() {
+        return FlagParser.newParser((str, flags) -> {
+                })
+                .newFlag("test", "t", "Used to test")
+                .parse("-t Hi there");
+    }
+
+    @Benchmark
+    public String declaredFlags() {
+        return new BenchParser().parse("-s --value=HERE Some text to keep");
+    }
+
+    public static class BenchParser extends FlagParser {
+        private final Flag silent = new Flag("silent", "s", "Silent");
+        private final ValueFlag value = new ValueFlag("value", "v", "A value");
+
+        @Override
+        public void onParsed(String parsed) {
+        }
+    }
+}
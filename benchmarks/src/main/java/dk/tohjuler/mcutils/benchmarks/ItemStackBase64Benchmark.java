@@ -0,0 +1,57 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import dk.tohjuler.mcutils.items.ItemStackBase64;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ItemStackBase64} round-trips, on a mocked server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemStackBase64Benchmark {
+    private ItemStack item;
+    private ItemStack[] inventory;
+    private String itemData;
+    private String inventoryData;
+
+    @Setup
+    public void setup() {
+        BenchServer.install();
+
+        item = new ItemStack(Material.DIAMOND_SWORD, 1);
+        inventory = new ItemStack[36];
+        for (int i = 0; i < inventory.length; i++)
+            inventory[i] = new ItemStack(i % 2 == 0 ? Material.STONE : Material.DIRT, i + 1);
+
+        itemData = ItemStackBase64.itemStackToBase64(item);
+        inventoryData = ItemStackBase64.itemStacksToBase64(inventory);
+    }
+
+    @Benchmark
+    public String serializeItem() {
+        return ItemStackBase64.itemStackToBase64(item);
+    }
+
+    @Benchmark
+    public ItemStack deserializeItem() {
+        return ItemStackBase64.itemStackFromBase64(itemData);
+    }
+
+    @Benchmark
+    public String serializeInventory() {
+        return ItemStackBase64.itemStacksToBase64(inventory);
+    }
+
+    @Benchmark
+    public ItemStack[] deserializeInventory() {
+        return ItemStackBase64.itemStacksFromBase64(inventoryData);
+    }
+}
@@ -0,0 +1,78 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import dk.tohjuler.mcutils.kami.KamiBuilder;
+import dk.tohjuler.mcutils.kami.KamiParser;
+import dk.tohjuler.mcutils.kami.enums.KamiEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link KamiParser#parse(String)} for representative scripts, on each engine.
+ * <br>
+ * The cached benchmarks reuse the compiled inputs, the uncached ones compile the input on each parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KamiBenchmark {
+    @Param({"EXPRESSIONS", "AST", "CODEGEN"})
+    public KamiEngine engine;
+
+    private KamiParser parser;
+    private KamiParser uncachedParser;
+
+    @Setup
+    public void setup() {
+        parser = build(256);
+        uncachedParser = build(0);
+        parser.getGlobalStorage().set("var:level", 12);
+    }
+
+    private KamiParser build(int cacheSize) {
+        return new KamiBuilder()
+                .useDebugExps()
+                .useMathExps()
+                .useEngine(engine)
+                .compileCacheSize(cacheSize)
+                .build();
+    }
+
+    @Benchmark
+    public String compare() {
+        return parser.parse("10 > 5").asString();
+    }
+
+    @Benchmark
+    public String logic() {
+        return parser.parse("10 > 5 && 3 < 4").asString();
+    }
+
+    @Benchmark
+    public String globalVar() {
+        return parser.parse("#level >= 10").asString();
+    }
+
+    @Benchmark
+    public String staticCall() {
+        return parser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTest()").asString();
+    }
+
+    @Benchmark
+    public String methodChain() {
+        return parser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTestList().get(0)").asString();
+    }
+
+    @Benchmark
+    public String function() {
+        return parser.parse("testFunc()").asString();
+    }
+
+    @Benchmark
+    public String uncachedLogic() {
+        return uncachedParser.parse("10 > 5 && 3 < 4").asString();
+    }
+}
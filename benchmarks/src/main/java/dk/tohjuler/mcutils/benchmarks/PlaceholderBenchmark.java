@@ -0,0 +1,63 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import dk.tohjuler.mcutils.placeholder.PlaceholderHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link PlaceholderHandler#apply(String, Object...)} with N placeholders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceholderBenchmark {
+    @Param({"1", "10", "50"})
+    public int placeholders;
+
+    private PlaceholderHandler handler;
+    private String input;
+    private final Profile profile = new Profile("Steve", 42);
+
+    @Setup
+    public void setup() {
+        handler = new PlaceholderHandler();
+        StringBuilder builder = new StringBuilder("Hello");
+        for (int i = 0; i < placeholders; i++) {
+            handler.replace("%ph_" + i + "%", "value " + i);
+            builder.append(' ').append("%ph_").append(i).append('%');
+        }
+        input = builder.toString();
+    }
+
+    @Benchmark
+    public String simple() {
+        return handler.apply(input);
+    }
+
+    @Benchmark
+    public String objectRef() {
+        return handler.apply("%Profile.name% is level %Profile.level%", profile);
+    }
+
+    public static class Profile {
+        private final String name;
+        private final int level;
+
+        public Profile(String name, int level) {
+            this.name = name;
+            this.level = level;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+    }
+}
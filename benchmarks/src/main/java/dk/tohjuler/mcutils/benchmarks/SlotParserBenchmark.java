@@ -0,0 +1,39 @@
+package dk.tohjuler.mcutils.benchmarks;
+
+import dk.tohjuler.mcutils.gui.utils.SlotParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link SlotParser#parseSlotString(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlotParserBenchmark {
+
+    @Benchmark
+    public List<Integer> single() {
+        return SlotParser.parseSlotString("13");
+    }
+
+    @Benchmark
+    public List<Integer> range() {
+        return SlotParser.parseSlotString("0-53");
+    }
+
+    @Benchmark
+    public List<Integer> list() {
+        return SlotParser.parseSlotString("10,11,12,13,14,15,16");
+    }
+
+    @Benchmark
+    public List<Integer> mixed() {
+        return SlotParser.parseSlotString("0-8,17,26,35,44,45-53");
+    }
+}
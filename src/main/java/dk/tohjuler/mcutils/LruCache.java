@@ -0,0 +1,126 @@
+package dk.tohjuler.mcutils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A small size-bounded cache, that evicts the least recently used entry.
+ * <br>
+ * All methods are synchronized, so the cache can be shared between threads.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class LruCache<K, V> {
+    private final int maxSize;
+    private final LinkedHashMap<K, V> map;
+
+    /**
+     * Creates a new cache.
+     * A max size of 0 or less disables the cache.
+     * <br>
+     *
+     * @param maxSize The max amount of entries to keep.
+     */
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a value from the cache.
+     * <br>
+     *
+     * @param key The key.
+     * @return The value, or null if not cached.
+     */
+    public synchronized @Nullable V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Puts a value into the cache.
+     * <br>
+     *
+     * @param key   The key.
+     * @param value The value.
+     */
+    public synchronized void put(K key, V value) {
+        if (maxSize <= 0) return;
+        map.put(key, value);
+    }
+
+    /**
+     * Gets a value from the cache, or computes and caches it if not present.
+     * The function is called outside the lock, so it may be called more than once for the same key.
+     * <br>
+     *
+     * @param key      The key.
+     * @param function The function to compute the value.
+     * @return The value.
+     */
+    public V computeIfAbsent(K key, Function<K, V> function) {
+        V value = get(key);
+        if (value != null) return value;
+
+        value = function.apply(key);
+        if (value != null) put(key, value);
+        return value;
+    }
+
+    /**
+     * Removes a value from the cache.
+     * <br>
+     *
+     * @param key The key.
+     */
+    public synchronized void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * Removes all values with a key matching the filter.
+     * <br>
+     *
+     * @param filter The filter for the keys to remove.
+     */
+    public synchronized void removeIf(Predicate<K> filter) {
+        map.keySet().removeIf(filter);
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * Gets the amount of cached entries.
+     * <br>
+     *
+     * @return The size of the cache.
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Gets the max amount of entries.
+     * <br>
+     *
+     * @return The max size.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
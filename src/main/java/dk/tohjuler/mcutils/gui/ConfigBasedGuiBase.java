@@ -1,6 +1,7 @@
 package dk.tohjuler.mcutils.gui;
 
 import dev.triumphteam.gui.guis.BaseGui;
+import dev.triumphteam.gui.guis.GuiItem;
 import dk.tohjuler.mcutils.config.ConfigurationFile;
 import dk.tohjuler.mcutils.enums.FillType;
 import dk.tohjuler.mcutils.gui.handler.GuiEventHandler;
@@ -23,8 +24,8 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -44,9 +45,10 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
     @Setter
     @Getter
     protected @NotNull FillType fillType;
-    @Setter
     @Getter
     protected @Nullable ItemBuilder fillItem;
+    /// The fill item built once, see {@link #prepareStatic()}.
+    private @Nullable GuiItem preparedFill;
 
     @Setter
     private @Nullable Replacer<S> titleReplacer;
@@ -58,6 +60,12 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
 
     @Getter
     private final List<IItem<T, S>> items = new ArrayList<>();
+    /// The scheduler for items that refresh on an interval, set by the {@link GuiManager} managing the gui.
+    @Setter
+    @Getter
+    private GuiRefreshScheduler refreshScheduler = GuiRefreshScheduler.global();
+    /// The sessions of the open guis, by player.
+    private final Map<UUID, GuiSession<T, S>> sessions = new ConcurrentHashMap<>();
 
     /// Weather to disable the gui config tags added to all items in the gui, the tags added are "gcf-id" and "gcf-call-ac"
     @Getter
@@ -83,6 +91,7 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
         this.category = category;
 
         if (storage == null) throw new NullPointerException("Storage cannot be null");
+        guiEventHandler.addOnClose((player, gui, localStorage) -> refreshScheduler.cancel(gui));
         init();
     }
 
@@ -105,6 +114,7 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
         this.category = null;
 
         if (storage == null) throw new NullPointerException("Storage cannot be null");
+        guiEventHandler.addOnClose((player, gui, localStorage) -> refreshScheduler.cancel(gui));
         init();
     }
 
@@ -162,6 +172,7 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
                         String mat = cf.cf().getString("items." + key + ".material");
                         item(key, slot, item)
                                 .stringMaterial(mat.startsWith("adv:") ? mat.substring(4) : null)
+                                .refreshEvery(cf.cf().getInt("items." + key + ".refresh", 0))
                                 .add();
                     }
                 } catch (Exception ex) {
@@ -194,6 +205,7 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
         items.removeIf(i -> !keys.contains(i.getId()));
 
         storage.load(cf, "vars");
+        prepareStatic();
     }
 
     /**
@@ -232,6 +244,37 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
 
         storage.save(cf, "vars");
         cf.save();
+        prepareStatic();
+    }
+
+    /**
+     * Build the fill item and the static items once, so opening the gui only sets the prebuilt items.
+     * Items are static if they are the same for every player, see {@link Item#isStatic()}.
+     * Called after the gui is loaded or saved, call it again if items are changed after that.
+     *
+     * @since 1.25.0
+     */
+    @SuppressWarnings("unchecked")
+    public void prepareStatic() {
+        preparedFill = fillItem != null ? fillItem.buildAsGuiItem() : null;
+        for (IItem<T, S> item : items)
+            if (item instanceof Item)
+                try {
+                    ((Item<T, S>) item).prepareStatic();
+                } catch (Exception ex) {
+                    new RuntimeException("Could not prepare item: " + item.getId() + " in " + id, ex).printStackTrace();
+                }
+    }
+
+    /**
+     * Set the fill item of the gui.
+     * <br/>
+     *
+     * @param fillItem The fill item
+     */
+    public void setFillItem(@Nullable ItemBuilder fillItem) {
+        this.fillItem = fillItem;
+        this.preparedFill = null;
     }
 
     /**
@@ -285,23 +328,33 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
      * @param initStorage A callback to set up the local storage
      * @since 1.11.0
      */
+    @SuppressWarnings("unchecked")
     public void open(Player p, @NotNull Consumer<S> initStorage) {
         S localStorage = createStorage(storage);
         initStorage.accept(localStorage);
         T gui = createGui(p, localStorage);
 
         fillGui(gui);
-        gui.setCloseGuiAction(e -> {
-            onClose(p, gui, localStorage);
-            guiEventHandler.callOnClose(p, gui, localStorage);
-        });
         gui.setDefaultClickAction(e -> {
             defaultClick(p, gui, e, localStorage);
             guiEventHandler.callDefaultClick(p, gui, e, localStorage);
         });
 
+        GuiSession<T, S> session = new GuiSession<>(this, gui, p, localStorage);
+        sessions.put(p.getUniqueId(), session);
+
         items.forEach(item -> item.setupGui(gui, p, localStorage));
 
+        for (IItem<T, S> item : items)
+            if (item instanceof Item && ((Item<T, S>) item).getRefreshEvery() > 0)
+                refreshScheduler.schedule(session, item.getId(), ((Item<T, S>) item).getRefreshEvery());
+        gui.setCloseGuiAction(e -> {
+            session.close();
+            sessions.remove(p.getUniqueId(), session);
+            onClose(p, gui, localStorage);
+            guiEventHandler.callOnClose(p, gui, localStorage);
+        });
+
         onCreate(p, gui, localStorage);
         guiEventHandler.callOnCreate(p, gui, localStorage);
         gui.open(p);
@@ -321,6 +374,46 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
         open(p, call);
     }
 
+    /**
+     * Get the session of the gui a player has open.
+     * <br/>
+     *
+     * @param p The player
+     * @return The session, or null if the player doesn't have this gui open
+     * @since 1.25.0
+     */
+    public @Nullable GuiSession<T, S> getSession(Player p) {
+        return sessions.get(p.getUniqueId());
+    }
+
+    /**
+     * Get the sessions of all players with this gui open.
+     * <br/>
+     *
+     * @return The sessions
+     * @since 1.25.0
+     */
+    public Collection<GuiSession<T, S>> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * Check if a gui item is shared by all opened guis, like the fill item and prebuilt static items.
+     * Shared items must not be changed for a single gui.
+     * <br/>
+     *
+     * @param item The gui item
+     * @return If the item is shared
+     * @since 1.25.0
+     */
+    @SuppressWarnings("unchecked")
+    public boolean isShared(GuiItem item) {
+        if (item == preparedFill) return true;
+        for (IItem<T, S> i : items)
+            if (i instanceof Item && ((Item<T, S>) i).getPrebuilt() == item) return true;
+        return false;
+    }
+
     private String applyPlaceholder(Player p, String s) {
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") == null) return s;
         return PlaceholderAPI.setPlaceholders(p, s);
@@ -498,25 +591,28 @@ public abstract class ConfigBasedGuiBase<T extends BaseGui, S extends IStorage>
             return;
         }
 
+        GuiItem fill = preparedFill;
+        if (fill == null && fillItem != null) fill = fillItem.buildAsGuiItem();
+
         switch (fillType) {
             case ALL:
-                gui.getFiller().fill(fillItem.buildAsGuiItem());
+                gui.getFiller().fill(fill);
                 break;
             case TOP:
-                gui.getFiller().fillTop(fillItem.buildAsGuiItem());
+                gui.getFiller().fillTop(fill);
                 break;
             case BOTTOM:
-                gui.getFiller().fillBottom(fillItem.buildAsGuiItem());
+                gui.getFiller().fillBottom(fill);
                 break;
             case SIDES:
-                gui.getFiller().fillBetweenPoints(0, 0, 5, 0, fillItem.buildAsGuiItem());
-                gui.getFiller().fillBetweenPoints(0, 8, 5, 8, fillItem.buildAsGuiItem());
+                gui.getFiller().fillBetweenPoints(0, 0, 5, 0, fill);
+                gui.getFiller().fillBetweenPoints(0, 8, 5, 8, fill);
             case AROUND:
-                gui.getFiller().fillBorder(fillItem.buildAsGuiItem());
+                gui.getFiller().fillBorder(fill);
                 break;
             case TOP_BOTTOM:
-                gui.getFiller().fillTop(fillItem.buildAsGuiItem());
-                gui.getFiller().fillBottom(fillItem.buildAsGuiItem());
+                gui.getFiller().fillTop(fill);
+                gui.getFiller().fillBottom(fill);
                 break;
             case NONE:
                 break;
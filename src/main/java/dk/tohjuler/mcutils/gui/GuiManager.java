@@ -1,6 +1,7 @@
 package dk.tohjuler.mcutils.gui;
 
 import dk.tohjuler.mcutils.gui.utils.IStorage;
+import lombok.Getter;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -14,11 +15,16 @@ public class GuiManager {
     private final File folder;
 
     private final JavaPlugin plugin;
+    /// The scheduler refreshing the items of all open guis of the manager.
+    @Getter
+    private final GuiRefreshScheduler refreshScheduler;
 
     public GuiManager(JavaPlugin plugin, ConfigBasedGuiBase<?, ?>... guis) {
         this.plugin = plugin;
+        this.refreshScheduler = new GuiRefreshScheduler(plugin);
         folder = new File(plugin.getDataFolder(), "guis");
         for (ConfigBasedGuiBase<?, ?> gui : guis) {
+            gui.setRefreshScheduler(refreshScheduler);
             this.guis.put(gui.getId(), gui);
             gui.load(folder);
         }
@@ -27,7 +33,9 @@ public class GuiManager {
     public GuiManager(JavaPlugin plugin, File folder, ConfigBasedGuiBase<?, ?>... guis) {
         this.plugin = plugin;
         this.folder = folder;
+        this.refreshScheduler = new GuiRefreshScheduler(plugin);
         for (ConfigBasedGuiBase<?, ?> gui : guis) {
+            gui.setRefreshScheduler(refreshScheduler);
             gui.load(folder);
             this.guis.put(gui.getId(), gui);
         }
@@ -0,0 +1,164 @@
+package dk.tohjuler.mcutils.gui;
+
+import dev.triumphteam.gui.guis.BaseGui;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Refreshes items of open guis on an interval, see {@link dk.tohjuler.mcutils.gui.items.Item#refreshEvery(int)}.
+ * <br/>
+ * A single timer runs for all open guis, and only while there are items to refresh.
+ * The items are kept in a timing wheel, so a tick only looks at the items in its bucket,
+ * and the items of a gui that are due in the same tick are refreshed together.
+ * Items are removed when their gui is closed.
+ * <br/>
+ * Must be used from the main thread.
+ *
+ * @since 1.25.0
+ */
+@SuppressWarnings("CallToPrintStackTrace")
+public class GuiRefreshScheduler {
+    /// The amount of buckets in the wheel, must be a power of two.
+    private static final int WHEEL_SIZE = 256;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static @Nullable GuiRefreshScheduler global;
+
+    /**
+     * Get the scheduler for guis not managed by a {@link GuiManager}.
+     * <br/>
+     *
+     * @return The global instance of the GuiRefreshScheduler.
+     */
+    public static GuiRefreshScheduler global() {
+        if (global == null) global = new GuiRefreshScheduler(null);
+        return global;
+    }
+
+    private final @Nullable Plugin plugin;
+    private final List<List<Entry>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long tick = 0;
+    private int size = 0;
+    private @Nullable BukkitTask task;
+
+    /**
+     * Create a new scheduler.
+     * <br/>
+     *
+     * @param plugin The plugin to run the timer with, null to use the plugin providing this class.
+     */
+    public GuiRefreshScheduler(@Nullable Plugin plugin) {
+        this.plugin = plugin;
+        for (int i = 0; i < WHEEL_SIZE; i++) wheel.add(new ArrayList<>());
+    }
+
+    /**
+     * Refresh an item of an open gui on an interval.
+     * <br/>
+     *
+     * @param session  The session of the gui.
+     * @param id       The id of the item.
+     * @param interval The interval in ticks.
+     */
+    public void schedule(GuiSession<?, ?> session, String id, int interval) {
+        if (interval <= 0 || session.isClosed()) return;
+
+        Entry entry = new Entry(session, id, interval, tick + interval);
+        wheel.get((int) (entry.due & MASK)).add(entry);
+        size++;
+
+        if (task == null)
+            task = Bukkit.getScheduler().runTaskTimer(
+                    plugin != null ? plugin : JavaPlugin.getProvidingPlugin(getClass()),
+                    this::tick,
+                    1, 1
+            );
+    }
+
+    /**
+     * Stop refreshing the items of a gui.
+     * <br/>
+     *
+     * @param gui The gui.
+     */
+    public void cancel(BaseGui gui) {
+        for (List<Entry> bucket : wheel)
+            bucket.removeIf(entry -> {
+                if (entry.session.getGui() != gui) return false;
+                size--;
+                return true;
+            });
+        stopIfEmpty();
+    }
+
+    /**
+     * Get the amount of items being refreshed.
+     * <br/>
+     *
+     * @return The amount of items.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void tick() {
+        tick++;
+        List<Entry> bucket = wheel.get((int) (tick & MASK));
+        if (bucket.isEmpty()) return;
+
+        Map<GuiSession<?, ?>, List<String>> due = new IdentityHashMap<>();
+        List<Entry> next = new ArrayList<>();
+        Iterator<Entry> it = bucket.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.session.isClosed()) {
+                it.remove();
+                size--;
+                continue;
+            }
+            if (entry.due > tick) continue; // Due in a later round of the wheel
+
+            it.remove();
+            due.computeIfAbsent(entry.session, k -> new ArrayList<>()).add(entry.id);
+            entry.due = tick + entry.interval;
+            next.add(entry);
+        }
+        for (Entry entry : next)
+            wheel.get((int) (entry.due & MASK)).add(entry);
+
+        for (Map.Entry<GuiSession<?, ?>, List<String>> entry : due.entrySet())
+            try {
+                entry.getKey().refresh(entry.getValue());
+            } catch (Exception e) {
+                new RuntimeException("Failed to refresh gui: " + entry.getKey().getGuiConfig().getId(), e).printStackTrace();
+            }
+
+        stopIfEmpty();
+    }
+
+    private void stopIfEmpty() {
+        if (size > 0 || task == null) return;
+        task.cancel();
+        task = null;
+    }
+
+    private static class Entry {
+        private final GuiSession<?, ?> session;
+        private final String id;
+        private final int interval;
+        /// The tick the item is refreshed at next.
+        private long due;
+
+        private Entry(GuiSession<?, ?> session, String id, int interval, long due) {
+            this.session = session;
+            this.id = id;
+            this.interval = interval;
+            this.due = due;
+        }
+    }
+}
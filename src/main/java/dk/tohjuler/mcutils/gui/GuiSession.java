@@ -0,0 +1,372 @@
+package dk.tohjuler.mcutils.gui;
+
+import dev.triumphteam.gui.components.util.ItemNbt;
+import dev.triumphteam.gui.guis.BaseGui;
+import dev.triumphteam.gui.guis.GuiItem;
+import dk.tohjuler.mcutils.gui.items.AsyncItem;
+import dk.tohjuler.mcutils.gui.items.IItem;
+import dk.tohjuler.mcutils.gui.items.Item;
+import dk.tohjuler.mcutils.gui.utils.AsList;
+import dk.tohjuler.mcutils.gui.utils.GuiUpdateQueue;
+import dk.tohjuler.mcutils.gui.utils.IStorage;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A session for a gui opened by a player, used to refresh single items while the gui is open.
+ * <br/>
+ * Items are marked dirty by their id, or by a storage key they depend on, see {@link Item#dependsOn(String...)}.
+ * The dirty items are rendered again on the next tick, and only the slots where the item changed are sent to the player.
+ * <pre>
+ * guiConfig.getSession(player).invalidate("balance");
+ * </pre>
+ * Items without a slot, asList items with auto slots and prebuilt static items are not refreshed.
+ *
+ * @param <T> The type of the gui
+ * @param <S> The type of the storage
+ * @since 1.25.0
+ */
+@SuppressWarnings({"CallToPrintStackTrace", "unchecked"})
+public class GuiSession<T extends BaseGui, S extends IStorage> {
+    @Getter
+    private final ConfigBasedGuiBase<T, S> guiConfig;
+    @Getter
+    private final T gui;
+    @Getter
+    private final Player player;
+    @Getter
+    private final S localStorage;
+
+    /// The refreshable items by id.
+    private final Map<String, Item<T, S>> items = new LinkedHashMap<>();
+    /// The slots each item was last rendered in, by id.
+    private final Map<String, List<Integer>> slots = new HashMap<>();
+    /// The dirty item ids, guarded by itself.
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private boolean scheduled = false;
+    /// The shown page of virtualized lists, by item id.
+    private final Map<String, Integer> pages = new ConcurrentHashMap<>();
+    /// The amount of pages of virtualized lists, by item id.
+    private final Map<String, Integer> pageCounts = new ConcurrentHashMap<>();
+    /// The values of the pages next to the shown page, by item id and page.
+    private final Map<String, Map<Integer, CompletableFuture<AsList.Page<?>>>> prefetched = new ConcurrentHashMap<>();
+    @Getter
+    private volatile boolean closed = false;
+
+    /**
+     * Create a new session, before the items are set up in the gui.
+     * <br/>
+     *
+     * @param guiConfig    The gui config
+     * @param gui          The opened gui
+     * @param player       The player the gui is opened for
+     * @param localStorage The local storage of the gui
+     */
+    public GuiSession(ConfigBasedGuiBase<T, S> guiConfig, T gui, Player player, S localStorage) {
+        this.guiConfig = guiConfig;
+        this.gui = gui;
+        this.player = player;
+        this.localStorage = localStorage;
+
+        for (IItem<T, S> iItem : guiConfig.getItems()) {
+            if (!(iItem instanceof Item) || iItem.getId() == null) continue;
+            Item<T, S> item = (Item<T, S>) iItem;
+            if (item.getPrebuilt() != null) continue;
+            // The slots depend on the size of the list, which is only known when the gui is built
+            if (item.getAsList() != null && item.getSlot().startsWith("auto")) continue;
+
+            List<Integer> itemSlots = item.parseSlot();
+            if (itemSlots.contains(-1)) continue;
+            items.put(item.getId(), item);
+            slots.put(item.getId(), new ArrayList<>(itemSlots));
+        }
+    }
+
+    // Invalidation
+    // ---
+
+    /**
+     * Mark items dirty, by their id or by a storage key they depend on.
+     * The items are refreshed on the next tick, can be called from any thread.
+     * <br/>
+     *
+     * @param keys The item ids or storage keys
+     */
+    public void invalidate(String... keys) {
+        boolean schedule;
+        synchronized (dirty) {
+            for (String key : keys) {
+                if (items.containsKey(key)) dirty.add(key);
+                for (Item<T, S> item : items.values())
+                    if (item.getDependencies().contains(key)) dirty.add(item.getId());
+            }
+            schedule = !dirty.isEmpty() && !scheduled;
+            if (schedule) scheduled = true;
+        }
+
+        if (schedule) Bukkit.getScheduler().runTask(getPlugin(), this::refresh);
+    }
+
+    /**
+     * Mark all refreshable items dirty.
+     * The items are refreshed on the next tick, can be called from any thread.
+     */
+    public void invalidateAll() {
+        invalidate(items.keySet().toArray(new String[0]));
+    }
+
+    // Refresh
+    // ---
+
+    /**
+     * Mark items dirty by id, and render the dirty items now.
+     * Must be called on the main thread.
+     * <br/>
+     *
+     * @param ids The item ids
+     * @return The amount of slots that were sent.
+     */
+    public int refresh(Collection<String> ids) {
+        synchronized (dirty) {
+            for (String id : ids)
+                if (items.containsKey(id)) dirty.add(id);
+        }
+        return refresh();
+    }
+
+    /**
+     * Render the dirty items now, and send the changed slots.
+     * Async items are rendered off the main thread, and set when they are done.
+     * Must be called on the main thread.
+     *
+     * @return The amount of slots that were sent.
+     */
+    public int refresh() {
+        List<String> ids;
+        synchronized (dirty) {
+            ids = new ArrayList<>(dirty);
+            dirty.clear();
+            scheduled = false;
+        }
+        if (closed) return 0;
+
+        int changed = 0;
+        for (String id : ids) {
+            Item<T, S> item = items.get(id);
+            if (item == null) continue;
+
+            if (item instanceof AsyncItem) {
+                Plugin plugin = getPlugin();
+                Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                    try {
+                        List<GuiUpdateQueue.SlotItem> rendered = item.render(gui, player, localStorage);
+                        Bukkit.getScheduler().runTask(plugin, () -> apply(id, rendered));
+                    } catch (Exception e) {
+                        new RuntimeException("Failed to refresh async item: " + id, e).printStackTrace();
+                    }
+                });
+                continue;
+            }
+
+            try {
+                changed += apply(id, item.render(gui, player, localStorage));
+            } catch (Exception e) {
+                new RuntimeException("Failed to refresh item: " + id + " in " + guiConfig.getId(), e).printStackTrace();
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Set the rendered items of an item, and clear the slots it is no longer in.
+     * <br/>
+     *
+     * @param id       The id of the item
+     * @param rendered The rendered items with their slots
+     * @return The amount of slots that were sent.
+     */
+    private int apply(String id, List<GuiUpdateQueue.SlotItem> rendered) {
+        if (closed) return 0;
+
+        int changed = 0;
+        List<Integer> newSlots = new ArrayList<>(rendered.size());
+        for (GuiUpdateQueue.SlotItem slotItem : rendered) {
+            if (slotItem.getSlot() == -1) continue;
+            newSlots.add(slotItem.getSlot());
+            if (setSlot(slotItem.getSlot(), slotItem.getItem())) changed++;
+        }
+
+        for (int slot : slots.getOrDefault(id, Collections.emptyList()))
+            if (!newSlots.contains(slot) && gui.getGuiItem(slot) != null) {
+                gui.removeItem(slot);
+                gui.getInventory().setItem(slot, null);
+                changed++;
+            }
+
+        slots.put(id, newSlots);
+        return changed;
+    }
+
+    /**
+     * Set an item in a slot, and send only that slot.
+     * If the slot already shows the same item, nothing is sent and only the click action is replaced.
+     * <br/>
+     *
+     * @param slot The slot
+     * @param item The new item
+     * @return If the slot was sent.
+     */
+    private boolean setSlot(int slot, GuiItem item) {
+        GuiItem old = gui.getGuiItem(slot);
+        ItemStack current = gui.getInventory().getItem(slot);
+        if (old != null && current != null && !guiConfig.isShared(old)) {
+            // The items only differ by the uuid triumph tags them with
+            ItemStack compare = ItemNbt.setString(item.getItemStack().clone(), "mf-gui", old.getUuid().toString());
+            if (compare.equals(current)) {
+                old.setAction(item.getAction());
+                return false;
+            }
+        }
+
+        gui.setItem(slot, item);
+        gui.getInventory().setItem(slot, item.getItemStack());
+        return true;
+    }
+
+    // Pages
+    // ---
+
+    /**
+     * Get the shown page of a virtualized list.
+     * <br/>
+     *
+     * @param id The id of the item
+     * @return The page, starting from 0
+     */
+    public int getPage(String id) {
+        return pages.getOrDefault(id, 0);
+    }
+
+    /**
+     * Get the amount of pages of a virtualized list, from when it was last rendered.
+     * <br/>
+     *
+     * @param id The id of the item
+     * @return The amount of pages, at least 1
+     */
+    public int getPageCount(String id) {
+        return pageCounts.getOrDefault(id, 1);
+    }
+
+    /**
+     * Show a page of a virtualized list.
+     * The item is refreshed on the next tick, if the page changed.
+     * <br/>
+     *
+     * @param id   The id of the item
+     * @param page The page, starting from 0
+     */
+    public void setPage(String id, int page) {
+        page = Math.max(0, Math.min(page, getPageCount(id) - 1));
+        Integer old = pages.put(id, page);
+        if (old == null ? page != 0 : old != page) invalidate(id);
+    }
+
+    /**
+     * Show the next page of a virtualized list, if there is one.
+     * <br/>
+     *
+     * @param id The id of the item
+     */
+    public void nextPage(String id) {
+        setPage(id, getPage(id) + 1);
+    }
+
+    /**
+     * Show the previous page of a virtualized list, if there is one.
+     * <br/>
+     *
+     * @param id The id of the item
+     */
+    public void previousPage(String id) {
+        setPage(id, getPage(id) - 1);
+    }
+
+    /**
+     * Set the amount of pages of a virtualized list, called by the item when it is rendered.
+     * <br/>
+     *
+     * @param id    The id of the item
+     * @param count The amount of pages
+     * @return The shown page, moved to the last page if it is past it
+     */
+    public int updatePageCount(String id, int count) {
+        count = Math.max(1, count);
+        pageCounts.put(id, count);
+        int page = getPage(id);
+        if (page < count) return page;
+
+        pages.put(id, count - 1);
+        return count - 1;
+    }
+
+    /**
+     * Fetch a page async, if not already fetched.
+     * <br/>
+     *
+     * @param id     The id of the item
+     * @param page   The page
+     * @param loader The function getting the page, called off the main thread
+     */
+    public void prefetch(String id, int page, Supplier<AsList.Page<?>> loader) {
+        if (closed) return;
+        prefetched.computeIfAbsent(id, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(page, k -> CompletableFuture.supplyAsync(
+                        loader,
+                        task -> Bukkit.getScheduler().runTaskAsynchronously(getPlugin(), task)
+                ));
+    }
+
+    /**
+     * Take a prefetched page, and drop the other prefetched pages of the item.
+     * <br/>
+     *
+     * @param id   The id of the item
+     * @param page The page
+     * @return The page, or null if the page was not prefetched or is not done yet
+     */
+    public @Nullable AsList.Page<?> takePrefetched(String id, int page) {
+        Map<Integer, CompletableFuture<AsList.Page<?>>> futures = prefetched.remove(id);
+        if (futures == null) return null;
+
+        CompletableFuture<AsList.Page<?>> future = futures.get(page);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) return null;
+        return future.join();
+    }
+
+    /**
+     * Stop the session, called when the gui is closed.
+     * Pending refreshes are dropped.
+     */
+    public void close() {
+        closed = true;
+        synchronized (dirty) {
+            dirty.clear();
+        }
+        prefetched.clear();
+    }
+
+    private Plugin getPlugin() {
+        return JavaPlugin.getProvidingPlugin(getClass());
+    }
+}
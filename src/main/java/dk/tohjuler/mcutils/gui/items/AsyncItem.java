@@ -4,6 +4,7 @@ import com.cryptomorin.xseries.XMaterial;
 import dev.triumphteam.gui.guis.BaseGui;
 import dk.tohjuler.mcutils.config.ConfigurationFile;
 import dk.tohjuler.mcutils.gui.ConfigBasedGuiBase;
+import dk.tohjuler.mcutils.gui.utils.GuiUpdateQueue;
 import dk.tohjuler.mcutils.gui.utils.IStorage;
 import dk.tohjuler.mcutils.gui.utils.SlotParser;
 import dk.tohjuler.mcutils.items.ItemBuilder;
@@ -12,17 +13,21 @@ import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.Nullable;
 
 /**
  * An async item is an item that gets loaded async.
+ * The item is built off the main thread, and set in the gui on the main thread,
+ * together with the other async items of the gui that finished in the same tick.
  * <br/>
  *
  * @param <T> The type of the gui
  * @param <S> The type of the storage
  * @since 1.18.0
  */
+@SuppressWarnings("CallToPrintStackTrace")
 @Getter
 public class AsyncItem<T extends BaseGui, S extends IStorage> extends Item<T, S> {
     private @Nullable ItemBuilder loader = new ItemBuilder(XMaterial.BARRIER).setDisplayName("&cLoading...");
@@ -72,34 +77,9 @@ public class AsyncItem<T extends BaseGui, S extends IStorage> extends Item<T, S>
         return this;
     }
 
-    private void asyncUpdateSlot(T gui, Player p, S localStorage) {
-        if (checkShow(p, localStorage)) {
-            if (asList != null) {
-                handleAsList(gui, p, localStorage, true);
-                gui.update();
-            } else if (parseSlotFirst() == -1)
-                gui.addItem(build(localStorage, p,
-                        e -> call(p, gui, e, localStorage),
-                        gui
-                ));
-            else
-                for (int slot : parseSlot())
-                    gui.updateItem(slot, build(localStorage, p,
-                            e -> call(p, gui, e, localStorage),
-                            gui
-                    ));
-        } else if (getFallbackItem() != null) // Fallback items
-            if (parseSlotFirst() == -1)
-                gui.addItem(buildFallback(localStorage, p,
-                        e -> call(p, gui, e, localStorage),
-                        gui
-                ));
-            else
-                for (int slot : parseSlot())
-                    gui.updateItem(slot, buildFallback(localStorage, p,
-                            e -> call(p, gui, e, localStorage),
-                            gui
-                    ));
+    @Override
+    public boolean isStatic() {
+        return false;
     }
 
     @Override
@@ -112,9 +92,16 @@ public class AsyncItem<T extends BaseGui, S extends IStorage> extends Item<T, S>
                         gui.setItem(slot, loader.buildAsGuiItem());
                     });
 
+        Plugin plugin = JavaPlugin.getProvidingPlugin(getClass());
         Bukkit.getScheduler().runTaskLaterAsynchronously(
-                JavaPlugin.getProvidingPlugin(getClass()),
-                () -> asyncUpdateSlot(gui, p, localStorage),
+                plugin,
+                () -> {
+                    try {
+                        GuiUpdateQueue.queue(plugin, gui, render(gui, p, localStorage));
+                    } catch (Exception e) {
+                        new RuntimeException("Failed to load async item: " + getId(), e).printStackTrace();
+                    }
+                },
                 fakeLoading // Add a fake loading time
         );
     }
@@ -7,8 +7,10 @@ import dev.triumphteam.gui.guis.BaseGui;
 import dev.triumphteam.gui.guis.GuiItem;
 import dk.tohjuler.mcutils.config.ConfigurationFile;
 import dk.tohjuler.mcutils.gui.ConfigBasedGuiBase;
+import dk.tohjuler.mcutils.gui.GuiSession;
 import dk.tohjuler.mcutils.gui.handler.ItemEventHandler;
 import dk.tohjuler.mcutils.gui.utils.AsList;
+import dk.tohjuler.mcutils.gui.utils.GuiUpdateQueue;
 import dk.tohjuler.mcutils.gui.utils.IStorage;
 import dk.tohjuler.mcutils.gui.utils.Replacer;
 import dk.tohjuler.mcutils.gui.utils.SlotParser;
@@ -17,14 +19,18 @@ import dk.tohjuler.mcutils.items.SkullCreator;
 import dk.tohjuler.mcutils.items.YamlItem;
 import dk.tohjuler.mcutils.placeholder.PlaceholderHandler;
 import lombok.Getter;
-import lombok.Setter;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
@@ -36,24 +42,29 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
     private final ConfigBasedGuiBase<T, S> guiConfig;
     private final String id;
 
-    @Setter
     private String slot;
-    @Setter
     private ItemBuilder item;
-    @Setter
     private @Nullable ItemBuilder fallbackItem;
     private boolean callClickOnFallback = false;
     protected @Nullable Predicate<Player> show;
     protected @Nullable BiPredicate<Player, S> showWithStorage;
     protected @Nullable AsList<?, T, S> asList;
 
-    @Setter
     private @Nullable String stringMaterial;
 
     protected BiConsumer<Player, WrappedInventoryClickEvent<T, S>> clickAction;
     protected Replacer<S> replacer;
     protected ItemEventHandler<T, S> eventHandler;
 
+    /// The interval in ticks to refresh the item at while the gui is open, 0 to not refresh.
+    private int refreshEvery = 0;
+    /// The storage keys the item depends on, see {@link #dependsOn(String...)}.
+    private final Set<String> dependencies = new HashSet<>();
+
+    /// The prebuilt item for static items, shared by all opened guis, see {@link #prepareStatic()}.
+    /// Cleared by every setter that can make the item not static.
+    private @Nullable GuiItem prebuilt;
+
     public Item(ConfigBasedGuiBase<T, S> guiConfig, String id, int slot, ItemBuilder item) {
         this.guiConfig = guiConfig;
         this.id = id;
@@ -81,6 +92,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> stringMaterial(@Nullable String stringMaterial) {
         this.stringMaterial = stringMaterial;
+        this.prebuilt = null;
         return this;
     }
 
@@ -94,6 +106,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> eventHandler(ItemEventHandler<T, S> eventHandler) {
         this.eventHandler = eventHandler;
+        this.prebuilt = null;
         return this;
     }
 
@@ -107,6 +120,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> show(Predicate<Player> show) {
         this.show = show;
+        this.prebuilt = null;
         return this;
     }
 
@@ -120,6 +134,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> show(BiPredicate<Player, S> show) {
         this.showWithStorage = show;
+        this.prebuilt = null;
         return this;
     }
 
@@ -132,6 +147,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> asList(AsList<?, T, S> asList) {
         this.asList = asList;
+        this.prebuilt = null;
         return this;
     }
 
@@ -172,6 +188,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> replacer(Replacer<S> replacer) {
         this.replacer = replacer;
+        this.prebuilt = null;
         return this;
     }
 
@@ -203,6 +220,36 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
                 applyPlaceholderHandler(ph);
             }
         };
+        this.prebuilt = null;
+        return this;
+    }
+
+    /**
+     * Refresh the item on an interval while the gui is open.
+     * Can also be set with the "refresh" key in the config.
+     * <br/>
+     *
+     * @param ticks The interval in ticks, 0 to not refresh
+     * @return The item
+     * @since 1.25.0
+     */
+    public Item<T, S> refreshEvery(int ticks) {
+        this.refreshEvery = ticks;
+        this.prebuilt = null;
+        return this;
+    }
+
+    /**
+     * Set the storage keys the item depends on.
+     * Invalidating one of the keys in a {@link dk.tohjuler.mcutils.gui.GuiSession} refreshes the item.
+     * <br/>
+     *
+     * @param keys The storage keys
+     * @return The item
+     * @since 1.25.0
+     */
+    public Item<T, S> dependsOn(String... keys) {
+        dependencies.addAll(Arrays.asList(keys));
         return this;
     }
 
@@ -218,6 +265,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     public Item<T, S> fallbackItem(ItemBuilder fallbackItem) {
         this.fallbackItem = fallbackItem;
+        this.prebuilt = null;
         return this;
     }
 
@@ -274,6 +322,101 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
         return slots.get(0);
     }
 
+    /**
+     * Check if the item is the same for every player, so it can be built once.
+     * An item is static when it has no replacer, show condition, asList, event handler, string material, fallback item or refresh interval,
+     * a slot, and no placeholders in the name or lore.
+     * <br/>
+     *
+     * @return If the item is static
+     * @since 1.25.0
+     */
+    public boolean isStatic() {
+        if (replacer != null || show != null || showWithStorage != null || asList != null
+                || eventHandler != null || stringMaterial != null || fallbackItem != null || item == null || refreshEvery > 0)
+            return false;
+        if (parseSlot().contains(-1)) return false;
+
+        ItemMeta meta = item.build().getItemMeta();
+        if (meta == null) return true;
+        if (meta.hasDisplayName() && meta.getDisplayName().indexOf('%') != -1) return false;
+        return !meta.hasLore() || meta.getLore().stream().noneMatch(line -> line.indexOf('%') != -1);
+    }
+
+    /**
+     * Build the item once if it is static, with the gcf tags.
+     * Opening the gui then sets the prebuilt item, instead of building it for the player.
+     * Called by {@link ConfigBasedGuiBase} when the gui is loaded.
+     * <br/>
+     * The prebuilt {@link GuiItem} is the same instance in every opened gui, so it must not be changed in place.
+     * Triumph's {@code gui.updateItem(slot, ItemStack)} sets the stack of the existing GuiItem, which would change the item for every viewer.
+     * Use {@code gui.updateItem(slot, GuiItem)} with a new item instead.
+     * <br/>
+     *
+     * @since 1.25.0
+     */
+    public void prepareStatic() {
+        prebuilt = null;
+        if (!isStatic()) return;
+
+        GuiItem guiItem = item.clone().buildAsGuiItem();
+        if (!guiConfig.isDisableItemGCFTags()) {
+            ItemStack stack = guiItem.getItemStack();
+            stack = ItemNbt.setString(stack, "gcf-id", getId());
+            stack = ItemNbt.setString(stack, "gcf-call-ac", "true");
+            guiItem.setItemStack(stack);
+        }
+        prebuilt = guiItem;
+    }
+
+    /**
+     * Set the item.
+     * Removes the prebuilt item, until {@link #prepareStatic()} is called again.
+     * <br/>
+     *
+     * @param item The item
+     */
+    public void setItem(ItemBuilder item) {
+        this.item = item;
+        this.prebuilt = null;
+    }
+
+    /**
+     * Set the slot of the item.
+     * Removes the prebuilt item, until {@link #prepareStatic()} is called again.
+     * <br/>
+     *
+     * @param slot The slot string
+     */
+    public void setSlot(String slot) {
+        this.slot = slot;
+        this.prebuilt = null;
+    }
+
+    /**
+     * Set the fallback item.
+     * Removes the prebuilt item, until {@link #prepareStatic()} is called again.
+     * <br/>
+     *
+     * @param fallbackItem The fallback item
+     */
+    public void setFallbackItem(@Nullable ItemBuilder fallbackItem) {
+        this.fallbackItem = fallbackItem;
+        this.prebuilt = null;
+    }
+
+    /**
+     * Set the string material.
+     * Removes the prebuilt item, until {@link #prepareStatic()} is called again.
+     * <br/>
+     *
+     * @param stringMaterial The string material
+     */
+    public void setStringMaterial(@Nullable String stringMaterial) {
+        this.stringMaterial = stringMaterial;
+        this.prebuilt = null;
+    }
+
     /**
      * Add the item to the gui.
      *
@@ -417,44 +560,144 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
     }
 
     protected void handleAsList(T gui, Player p, S localStorage, boolean update) {
+        for (GuiUpdateQueue.SlotItem item : buildAsList(gui, p, localStorage))
+            if (item.getSlot() == -1)
+                gui.addItem(item.getItem());
+            else if (update)
+                gui.updateItem(item.getSlot(), item.getItem());
+            else
+                gui.setItem(item.getSlot(), item.getItem());
+    }
+
+    /**
+     * Build the items of the asList, without adding them to the gui.
+     * Virtualized lists with slots only build the shown page.
+     * <br/>
+     *
+     * @param gui          The gui
+     * @param p            The player
+     * @param localStorage The local storage
+     * @return The items with their slots, -1 if they should be added to the first empty slot
+     * @since 1.25.0
+     */
+    protected List<GuiUpdateQueue.SlotItem> buildAsList(T gui, Player p, S localStorage) {
         assert asList != null : "asList is null, this should not happen";
+        if (asList.isVirtualized() && !slot.startsWith("auto")) {
+            List<Integer> slots = parseSlot();
+            if (!slots.isEmpty() && !slots.contains(-1)) return buildAsListPage(gui, p, localStorage, slots);
+        }
+
         List<AsList.Holder<T, S>> items = asList.call(p, localStorage);
         List<Integer> slots = parseSlot();
+        List<GuiUpdateQueue.SlotItem> res = new ArrayList<>(items.size());
 
-        for (AsList.Holder<T, S> listItem : items) {
+        for (int i = 0; i < items.size(); i++) {
+            AsList.Holder<T, S> listItem = items.get(i);
             if (!listItem.isShow() && fallbackItem == null) continue;
-            GuiItem item = build(
-                    localStorage,
-                    listItem.getReplacer().getPlayer() != null
-                            ? listItem.getReplacer().getPlayer()
-                            : p,
-                    e -> {
-                        if (!listItem.isShow()) return; // Uses fallback
-
-                        listItem.getCallback().accept(
-                                p,
-                                new Item.WrappedInventoryClickEvent<>(
-                                        guiConfig,
-                                        gui,
-                                        e,
-                                        this,
-                                        localStorage,
-                                        listItem
-                                )
-                        );
-                    },
-                    listItem.getReplacer(),
-                    gui,
-                    !listItem.isShow()
-            );
+            res.add(new GuiUpdateQueue.SlotItem(
+                    slots.get(0) == -1 ? -1 : slots.get(i),
+                    buildListItem(gui, p, localStorage, listItem)
+            ));
+        }
+        return res;
+    }
 
-            if (slots.get(0) == -1)
-                gui.addItem(item);
-            else if (update)
-                gui.updateItem(slots.get(items.indexOf(listItem)), item);
-            else
-                gui.setItem(slots.get(items.indexOf(listItem)), item);
+    private List<GuiUpdateQueue.SlotItem> buildAsListPage(T gui, Player p, S localStorage, List<Integer> slots) {
+        assert asList != null : "asList is null, this should not happen";
+        AsList<?, T, S> asList = this.asList;
+        GuiSession<T, S> session = guiConfig.getSession(p);
+        if (session != null && session.getGui() != gui) session = null;
+
+        int pageSize = slots.size();
+        int shown = session != null ? session.getPage(getId()) : 0;
+
+        AsList.Page<?> values = session != null ? session.takePrefetched(getId(), shown) : null;
+        if (values == null) values = asList.getPage(p, localStorage, shown * pageSize, pageSize);
+
+        int pages = (values.getTotal() + pageSize - 1) / pageSize;
+        if (session != null && session.updatePageCount(getId(), pages) != shown) {
+            // The list got shorter than the shown page
+            shown = session.getPage(getId());
+            values = asList.getPage(p, localStorage, shown * pageSize, pageSize);
         }
+        int page = shown;
+        int offset = page * pageSize;
+
+        List<AsList.Holder<T, S>> items = asList.callPage(p, localStorage, values.getValues());
+        List<GuiUpdateQueue.SlotItem> res = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size() && i < pageSize; i++) {
+            AsList.Holder<T, S> listItem = items.get(i);
+            if (!listItem.isShow() && fallbackItem == null) continue;
+            res.add(new GuiUpdateQueue.SlotItem(slots.get(i), buildListItem(gui, p, localStorage, listItem)));
+        }
+
+        if (session != null && asList.isPrefetch()) {
+            if (page + 1 < pages)
+                session.prefetch(getId(), page + 1, () -> asList.getPage(p, localStorage, offset + pageSize, pageSize));
+            if (page > 0)
+                session.prefetch(getId(), page - 1, () -> asList.getPage(p, localStorage, offset - pageSize, pageSize));
+        }
+        return res;
+    }
+
+    private GuiItem buildListItem(T gui, Player p, S localStorage, AsList.Holder<T, S> listItem) {
+        Replacer<S> replacer = listItem.getReplacer();
+        return build(
+                localStorage,
+                replacer.getPlayer() != null
+                        ? replacer.getPlayer()
+                        : p,
+                e -> {
+                    if (!listItem.isShow()) return; // Uses fallback
+
+                    listItem.getCallback().accept(
+                            p,
+                            new Item.WrappedInventoryClickEvent<>(
+                                    guiConfig,
+                                    gui,
+                                    e,
+                                    this,
+                                    localStorage,
+                                    listItem
+                            )
+                    );
+                },
+                replacer,
+                gui,
+                !listItem.isShow()
+        );
+    }
+
+    /**
+     * Build the item for each of its slots, without adding it to the gui.
+     * Used to refresh the item, and to build async items off the main thread.
+     * <br/>
+     *
+     * @param gui          The gui
+     * @param p            The player
+     * @param localStorage The local storage
+     * @return The items with their slots, empty if the item is not shown and has no fallback item
+     * @since 1.25.0
+     */
+    public List<GuiUpdateQueue.SlotItem> render(T gui, Player p, S localStorage) {
+        List<GuiUpdateQueue.SlotItem> res = new ArrayList<>();
+        if (checkShow(p, localStorage)) {
+            if (asList != null) return buildAsList(gui, p, localStorage);
+
+            for (int slot : parseSlot())
+                res.add(new GuiUpdateQueue.SlotItem(slot, build(localStorage, p,
+                        e -> call(p, gui, e, localStorage),
+                        gui
+                )));
+        } else if (getFallbackItem() != null) // Fallback items
+            for (int slot : parseSlot())
+                res.add(new GuiUpdateQueue.SlotItem(slot, buildFallback(localStorage, p,
+                        e -> {
+                            if (callClickOnFallback) call(p, gui, e, localStorage);
+                        },
+                        gui
+                )));
+        return res;
     }
 
     /**
@@ -468,6 +711,18 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
      */
     @Override
     public void setupGui(T gui, Player p, S localStorage) {
+        GuiItem prebuilt = this.prebuilt;
+        if (prebuilt != null && replacer == null && show == null && showWithStorage == null
+                && asList == null && eventHandler == null && stringMaterial == null && fallbackItem == null && refreshEvery <= 0) {
+            // The shared item has no action, so items with a click action get a copy with their own
+            GuiItem guiItem = clickAction == null
+                    ? prebuilt
+                    : new GuiItem(prebuilt.getItemStack().clone(), e -> call(p, gui, e, localStorage));
+            for (int slot : parseSlot())
+                gui.setItem(slot, guiItem);
+            return;
+        }
+
         if (checkShow(p, localStorage)) {
             if (asList != null) {
                 handleAsList(gui, p, localStorage);
@@ -517,6 +772,8 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
             cf.cf().set(path + ".Note", "This item is a listed item.");
         if (getFallbackItem() != null)
             YamlItem.saveItem(cf, getFallbackItem(), path + ".fallback");
+        if (refreshEvery > 0)
+            cf.cf().set(path + ".refresh", refreshEvery);
     }
 
     @Override
@@ -531,6 +788,7 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
 
         if (cf.cf().isSet(basePath + ".fallback"))
             setFallbackItem(YamlItem.loadItem(cf, basePath + ".fallback"));
+        refreshEvery(cf.cf().getInt(basePath + ".refresh", refreshEvery));
     }
 
     /**
@@ -637,6 +895,18 @@ public class Item<T extends BaseGui, S extends IStorage> implements IItem<T, S>
                 ));
         }
 
+        /**
+         * Get the session of the gui, to refresh items while it is open.
+         * <br/>
+         *
+         * @return The session, or null if the gui is closed
+         * @since 1.25.0
+         */
+        public @Nullable GuiSession<T, S> getSession() {
+            GuiSession<T, S> session = guiConfig.getSession((Player) event.getWhoClicked());
+            return session != null && session.getGui() == gui ? session : null;
+        }
+
         /**
          * Reopen the gui for the player.
          * Does not refresh the gui.
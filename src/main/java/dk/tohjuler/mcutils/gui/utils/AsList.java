@@ -6,11 +6,11 @@ import lombok.Getter;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * This class is used to make a single gui item into many.
@@ -25,6 +25,10 @@ import java.util.stream.Collectors;
 @Getter
 public abstract class AsList<T, GUI extends BaseGui, S extends IStorage> {
     private @Nullable List<T> list;
+    /// If only the shown page of the list is built, see {@link #virtualize()}.
+    private boolean virtualized = false;
+    /// If the pages next to the shown page are fetched async, see {@link #prefetch()}.
+    private boolean prefetch = false;
 
     /**
      * This is an internal method, don't use it.
@@ -39,12 +43,71 @@ public abstract class AsList<T, GUI extends BaseGui, S extends IStorage> {
         list = getList(p, localStorage);
         if (list == null || list.isEmpty()) return Collections.emptyList();
 
-        return list.stream().map(value -> {
-                    Replacer<S> replacer = handle(value, p);
-                    if (value instanceof Player) replacer.setPlayer((Player) value);
-                    return new Holder<GUI, S>(() -> handle(value, p), (player, event) -> clickAction(player, event, value), show(p, localStorage, value));
-                })
-                .collect(Collectors.toList());
+        return holders(list, p, localStorage);
+    }
+
+    /**
+     * This is an internal method, don't use it.
+     * Used by virtualized lists, to only make holders for the values of the shown page.
+     * <br/>
+     *
+     * @param p            The player to call the method on
+     * @param localStorage The local storage
+     * @param values       The values of the page, from {@link #getPage(Player, IStorage, int, int)}
+     * @return The holders for the values
+     * @since 1.25.0
+     */
+    @SuppressWarnings("unchecked")
+    public List<Holder<GUI, S>> callPage(Player p, S localStorage, List<?> values) {
+        return holders((List<T>) values, p, localStorage);
+    }
+
+    private List<Holder<GUI, S>> holders(List<T> values, Player p, S localStorage) {
+        List<Holder<GUI, S>> res = new ArrayList<>(values.size());
+        for (T value : values)
+            res.add(new Holder<>(
+                    () -> {
+                        Replacer<S> replacer = handle(value, p);
+                        if (value instanceof Player) replacer.setPlayer((Player) value);
+                        return replacer;
+                    },
+                    (player, event) -> clickAction(player, event, value),
+                    show(p, localStorage, value)
+            ));
+        return res;
+    }
+
+    /**
+     * Only build the values on the shown page, instead of the whole list.
+     * The slots of the item are the page, use {@link dk.tohjuler.mcutils.gui.GuiSession#nextPage(String)}
+     * and {@link dk.tohjuler.mcutils.gui.GuiSession#previousPage(String)} to change the page.
+     * Override {@link #getPage(Player, IStorage, int, int)} to not load the whole list.
+     * Items without a slot or with an auto slot build the whole list.
+     * <br/>
+     *
+     * @return The AsList instance
+     * @since 1.25.0
+     */
+    public AsList<T, GUI, S> virtualize() {
+        this.virtualized = true;
+        return this;
+    }
+
+    /**
+     * Virtualize the list, and fetch the values of the next and previous page async,
+     * so changing the page doesn't wait for {@link #getPage(Player, IStorage, int, int)}.
+     * <br/>
+     * The pages are fetched off the main thread, so {@link #getPage(Player, IStorage, int, int)},
+     * and {@link #getList(Player, IStorage)} when it is not overridden, must be safe to call async.
+     * <br/>
+     *
+     * @return The AsList instance
+     * @since 1.25.0
+     */
+    public AsList<T, GUI, S> prefetch() {
+        this.virtualized = true;
+        this.prefetch = true;
+        return this;
     }
 
     /**
@@ -70,6 +133,26 @@ public abstract class AsList<T, GUI extends BaseGui, S extends IStorage> {
      */
     public abstract @Nullable List<T> getList(Player p, S localStorage);
 
+    /**
+     * Get a page of the values and the amount of values in the list, used by virtualized lists.
+     * Default gets the whole list once and returns a part of it.
+     * Called off the main thread, when the list is prefetched.
+     * <br/>
+     *
+     * @param p            The player to get the values for
+     * @param localStorage The local storage
+     * @param offset       The index of the first value
+     * @param limit        The max amount of values
+     * @return The page
+     * @since 1.25.0
+     */
+    public Page<T> getPage(Player p, S localStorage, int offset, int limit) {
+        List<T> values = getList(p, localStorage);
+        if (values == null) return new Page<>(Collections.emptyList(), 0);
+        if (offset >= values.size()) return new Page<>(Collections.emptyList(), values.size());
+        return new Page<>(values.subList(offset, Math.min(values.size(), offset + limit)), values.size());
+    }
+
     /**
      * The action to run when the item is clicked
      * <br/>
@@ -96,6 +179,32 @@ public abstract class AsList<T, GUI extends BaseGui, S extends IStorage> {
         return true;
     }
 
+    /**
+     * A page of a virtualized list.
+     * <br/>
+     *
+     * @param <T> The type of the list.
+     * @since 1.25.0
+     */
+    @Getter
+    public static class Page<T> {
+        private final List<T> values;
+        /// The amount of values in the whole list.
+        private final int total;
+
+        /**
+         * Create a new page
+         * <br/>
+         *
+         * @param values The values of the page
+         * @param total  The amount of values in the whole list
+         */
+        public Page(List<T> values, int total) {
+            this.values = values;
+            this.total = total;
+        }
+    }
+
     /**
      * A holder for the replacer and the click action.
      * <br/>
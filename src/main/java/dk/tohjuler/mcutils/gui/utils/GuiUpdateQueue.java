@@ -0,0 +1,111 @@
+package dk.tohjuler.mcutils.gui.utils;
+
+import dev.triumphteam.gui.guis.BaseGui;
+import dev.triumphteam.gui.guis.GuiItem;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Commits items built off the main thread to their guis on the main thread.
+ * <br/>
+ * All items queued for a gui within a tick are set in a single main thread task.
+ * Only the changed slots are sent, and {@link BaseGui#update()} is only called when items without a slot were added.
+ *
+ * @since 1.25.0
+ */
+@SuppressWarnings("CallToPrintStackTrace")
+public class GuiUpdateQueue {
+    private static final Object lock = new Object();
+    /// The pending items per gui, guarded by the lock.
+    private static Map<BaseGui, List<SlotItem>> pending = new IdentityHashMap<>();
+    private static boolean scheduled = false;
+
+    private GuiUpdateQueue() {
+    }
+
+    /**
+     * Queue items to be set in a gui on the next tick.
+     * Can be called from any thread.
+     * <br/>
+     *
+     * @param plugin The plugin to schedule the task with.
+     * @param gui    The gui to set the items in.
+     * @param items  The items to set.
+     * @since 1.25.0
+     */
+    public static void queue(Plugin plugin, BaseGui gui, List<SlotItem> items) {
+        if (items.isEmpty()) return;
+
+        synchronized (lock) {
+            pending.computeIfAbsent(gui, k -> new ArrayList<>()).addAll(items);
+            if (scheduled) return;
+            scheduled = true;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, GuiUpdateQueue::flush);
+    }
+
+    /**
+     * Set all pending items in their guis.
+     * Must be called on the main thread.
+     *
+     * @since 1.25.0
+     */
+    public static void flush() {
+        Map<BaseGui, List<SlotItem>> updates;
+        synchronized (lock) {
+            updates = pending;
+            pending = new IdentityHashMap<>();
+            scheduled = false;
+        }
+
+        for (Map.Entry<BaseGui, List<SlotItem>> entry : updates.entrySet()) {
+            BaseGui gui = entry.getKey();
+            try {
+                boolean added = false;
+                for (SlotItem item : entry.getValue())
+                    if (item.getSlot() == -1) {
+                        gui.addItem(item.getItem());
+                        added = true;
+                    } else {
+                        gui.setItem(item.getSlot(), item.getItem());
+                        gui.getInventory().setItem(item.getSlot(), item.getItem().getItemStack());
+                    }
+                if (added) gui.update();
+            } catch (Exception e) {
+                new RuntimeException("Failed to update gui with async items", e).printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * An item with the slot to set it in.
+     * <br/>
+     *
+     * @since 1.25.0
+     */
+    @Getter
+    public static class SlotItem {
+        /// The slot, -1 to add the item to the first empty slot.
+        private final int slot;
+        private final GuiItem item;
+
+        /**
+         * Create a new slot item.
+         * <br/>
+         *
+         * @param slot The slot, -1 to add the item to the first empty slot.
+         * @param item The item.
+         */
+        public SlotItem(int slot, GuiItem item) {
+            this.slot = slot;
+            this.item = item;
+        }
+    }
+}
@@ -119,7 +119,20 @@ public abstract class Replacer<S extends IStorage> {
      * @since 1.5.0
      */
     public static String replaceInString(String str, String regex, Function<String, String> func) {
-        Pattern pattern = Pattern.compile(regex);
+        return replaceInString(str, Pattern.compile(regex), func);
+    }
+
+    /**
+     * Replace a compiled regex in a string.
+     * <br/>
+     *
+     * @param str     The string to replace in
+     * @param pattern The regex to replace
+     * @param func    The function to replace the string with
+     * @return The string with the replaced regex
+     * @since 1.25.0
+     */
+    public static String replaceInString(String str, Pattern pattern, Function<String, String> func) {
         Matcher matcher = pattern.matcher(str);
 
         while (matcher.find()) {
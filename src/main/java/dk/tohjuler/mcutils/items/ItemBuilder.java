@@ -6,6 +6,7 @@ import dev.triumphteam.gui.components.util.ItemNbt;
 import dev.triumphteam.gui.guis.GuiItem;
 import dk.tohjuler.mcutils.gui.utils.Replacer;
 import dk.tohjuler.mcutils.placeholder.PlaceholderHandler;
+import dk.tohjuler.mcutils.placeholder.impl.CachingPlaceholderHandler;
 import dk.tohjuler.mcutils.strings.ColorUtils;
 import lombok.Getter;
 import me.clip.placeholderapi.PlaceholderAPI;
@@ -23,6 +24,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class ItemBuilder {
@@ -167,6 +169,27 @@ public class ItemBuilder {
         });
     }
 
+    /**
+     * Apply placeholders to the item, with the values cached by a {@link CachingPlaceholderHandler}
+     * Applies to:
+     * - Display name
+     * - Lore
+     *
+     * @param p     the player to apply the placeholders for
+     * @param cache the cache to get the values from
+     * @return the itembuilder
+     * @since 1.25.0
+     */
+    public ItemBuilder applyPlaceholder(Player p, CachingPlaceholderHandler cache) {
+        return modifyMeta(meta -> {
+            if (meta.hasDisplayName())
+                meta.setDisplayName(cache.apply(meta.getDisplayName(), p));
+            if (meta.hasLore())
+                meta.setLore(meta.getLore().stream().map(s -> cache.apply(s, p)).collect(Collectors.toList()));
+            return meta;
+        });
+    }
+
     /**
      * Set the material of the item
      *
@@ -267,19 +290,13 @@ public class ItemBuilder {
      * @return the itembuilder
      */
     public ItemBuilder replaceAllFromGui(String regex, Function<String, String> func) {
-        if (getDisplayName() != null)
-            setDisplayName(Replacer.replaceInString(getDisplayName(), regex, func));
-        if (getLore() != null)
-            setLore(
-                    getLore().stream()
-                            .map(s -> Replacer.replaceInString(s, regex, func))
-                            .filter(s -> !s.startsWith("/**")) // Ignore lines starting with /**
-                            .flatMap(s -> Arrays.stream(s.split("\\n")))
-                            .flatMap(s -> Arrays.stream(s.split("%nl%")))
-                            .collect(Collectors.toList())
-            );
-
-        return this;
+        Pattern pattern = Pattern.compile(regex);
+        return transformText(
+                name -> Replacer.replaceInString(name, pattern, func),
+                lore -> lore.stream()
+                        .map(s -> Replacer.replaceInString(s, pattern, func))
+                        .collect(Collectors.toList())
+        );
     }
 
     /**
@@ -293,20 +310,75 @@ public class ItemBuilder {
      * @since 1.23.0
      */
     public ItemBuilder applyPlaceholderHandler(PlaceholderHandler handler, @Nullable OfflinePlayer player) {
-        if (getDisplayName() != null)
-            setDisplayName(handler.apply(getDisplayName(), player));
-        if (getLore() != null)
-            setLore(
-                    getLore().stream()
-                            .map(s -> handler.apply(s, player))
-                            .filter(s -> !s.startsWith("/**")) // Ignore lines starting with /**
-                            .flatMap(s -> Arrays.stream(s.split("\\n")))
-                            .flatMap(s -> Arrays.stream(s.split("%nl%")))
-                            .collect(Collectors.toList())
-            );
+        return transformText(
+                name -> handler.apply(name, player),
+                lore -> handler.applyAll(lore, player)
+        );
+    }
+
+    /**
+     * Transform the display name and lore together.
+     * The item meta is read and written once.
+     * Lore lines starting with /** are removed, \n and %nl% in the lore create new lines,
+     * and the name and each lore line are colorized.
+     * <br/>
+     *
+     * @param name the function to transform the display name with, if the item has one
+     * @param lore the function to transform the lore with, if the item has one
+     * @return the itembuilder
+     * @since 1.25.0
+     */
+    public ItemBuilder transformText(Function<String, String> name, Function<List<String>, List<String>> lore) {
+        ItemMeta itemMeta = this.item.getItemMeta();
+        if (itemMeta == null) return this;
+
+        if (itemMeta.hasDisplayName())
+            itemMeta.setDisplayName(colorize(name.apply(itemMeta.getDisplayName())));
+        if (itemMeta.hasLore() && itemMeta.getLore() != null) {
+            List<String> lines = new ArrayList<>();
+            for (String line : lore.apply(itemMeta.getLore())) {
+                if (line.startsWith("/**")) continue; // Ignore lines starting with /**
+                splitLines(line, lines);
+            }
+            // Colorized after splitting, so gradients and codes end at the line break
+            lines.replaceAll(this::colorize);
+            itemMeta.setLore(lines);
+        }
+
+        this.item.setItemMeta(itemMeta);
         return this;
     }
 
+    /**
+     * Split a line at \n and %nl%, like {@link String#split(String)} trailing empty lines are removed.
+     *
+     * @param line  the line
+     * @param lines the list to add the lines to
+     */
+    private static void splitLines(String line, List<String> lines) {
+        int start = lines.size();
+        int last = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\n') {
+                lines.add(line.substring(last, i));
+                last = i + 1;
+            } else if (c == '%' && line.startsWith("%nl%", i)) {
+                lines.add(line.substring(last, i));
+                last = i + 4;
+                i += 3;
+            }
+        }
+
+        if (last == 0) {
+            lines.add(line);
+            return;
+        }
+        lines.add(line.substring(last));
+        while (lines.size() > start && lines.get(lines.size() - 1).isEmpty())
+            lines.remove(lines.size() - 1);
+    }
+
     /**
      * Set the item display name
      *
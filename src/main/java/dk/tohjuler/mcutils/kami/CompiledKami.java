@@ -0,0 +1,84 @@
+package dk.tohjuler.mcutils.kami;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * A compiled filter for a Kami input.
+ * <br>
+ * It holds the expressions in execution order, and which of them match the input before any expression is executed.
+ * The matches are recorded by the first execution, so each pattern is only matched once on the cold path.
+ * While the current string of a state is still the compiled input,
+ * expressions known not to match are skipped without running their pattern.
+ * After an expression rewrites the string, the remaining expressions are matched as normal.
+ * <br>
+ * Use {@link KamiParser#compile(String)} to create one.
+ * They can be executed multiple times, also from multiple threads, with {@link KamiParser#execute(CompiledKami, org.bukkit.entity.Player, java.util.Map)}.
+ */
+@Getter
+public class CompiledKami {
+    private static final byte UNKNOWN = 0;
+    private static final byte MATCH = 1;
+    private static final byte MISS = 2;
+
+    /**
+     * The input the filter was compiled from.
+     */
+    private final String source;
+    /**
+     * The expressions sorted by priority.
+     */
+    private final KamiExp[] expressions;
+
+    /// If the expression at the index matches the source, recorded when it is first matched.
+    /// Racing writes are fine, as every thread records the same value.
+    @Getter(AccessLevel.NONE)
+    private final byte[] matches;
+
+    CompiledKami(String source, KamiExp[] expressions) {
+        this.source = source;
+        this.expressions = expressions;
+        this.matches = new byte[expressions.length];
+    }
+
+    /**
+     * Checks if the expression at the index is known not to match the current string.
+     * This is only known while the current string is the same as the source.
+     * <br>
+     *
+     * @param index   The index of the expression.
+     * @param current The current string of the state.
+     * @return If the expression can be skipped.
+     */
+    public boolean isKnownMiss(int index, String current) {
+        return matches[index] == MISS && source.equals(current);
+    }
+
+    /**
+     * Records if the expression at the index matched, when the string it was matched against is the source.
+     *
+     * @param index   The index of the expression.
+     * @param current The string the expression was matched against.
+     * @param matched If the expression matched.
+     */
+    void record(int index, String current, boolean matched) {
+        if (matches[index] == UNKNOWN && source.equals(current))
+            matches[index] = matched ? MATCH : MISS;
+    }
+
+    /**
+     * Checks if the expression at the index matches the source.
+     * <br>
+     *
+     * @param index The index of the expression.
+     * @return If the expression matches the source.
+     */
+    public boolean matches(int index) {
+        byte match = matches[index];
+        if (match == UNKNOWN) {
+            match = expressions[index].getPattern().matcher(source).find() ? MATCH : MISS;
+            matches[index] = match;
+        }
+        return match == MATCH;
+    }
+}
@@ -1,5 +1,6 @@
 package dk.tohjuler.mcutils.kami;
 
+import dk.tohjuler.mcutils.kami.enums.KamiEngine;
 import dk.tohjuler.mcutils.kami.expressions.CheckExp;
 import dk.tohjuler.mcutils.kami.expressions.HelpExp;
 import dk.tohjuler.mcutils.kami.expressions.ToStringExp;
@@ -12,6 +13,7 @@ import dk.tohjuler.mcutils.kami.handlers.IGlobalStorage;
 import dk.tohjuler.mcutils.kami.handlers.IHandler;
 import dk.tohjuler.mcutils.kami.handlers.IOutputHandler;
 import dk.tohjuler.mcutils.kami.handlers.TypeHandler;
+import dk.tohjuler.mcutils.kami.handlers.defaults.ConcurrentGlobalStorage;
 import dk.tohjuler.mcutils.kami.handlers.defaults.DefaultOutputHandler;
 import dk.tohjuler.mcutils.kami.handlers.defaults.EmptyGlobalStorage;
 import dk.tohjuler.mcutils.kami.handlers.defaults.MemoryGlobalStorage;
@@ -38,6 +40,9 @@ public class KamiBuilder {
     private final List<IHandler> handlers = new ArrayList<>();
 
     private String globalStorageId = null;
+    private int compileCacheSize = 256;
+    private KamiEngine engine = KamiEngine.EXPRESSIONS;
+    private boolean threadSafe = false;
     private final List<Class<?>> printTypes = new ArrayList<>(Arrays.asList(
             String.class, Integer.class, Long.class, Double.class, Float.class, Boolean.class
     ));
@@ -240,6 +245,74 @@ public class KamiBuilder {
         return this;
     }
 
+    /**
+     * Set the engine used to evaluate inputs.
+     * Default is {@link KamiEngine#EXPRESSIONS}.
+     * <br>
+     *
+     * @param engine The engine.
+     * @return The builder.
+     */
+    public KamiBuilder useEngine(KamiEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * Use the AST engine.
+     * The input is lexed into a tree and evaluated in a single pass,
+     * only the syntax of the added expressions is allowed.
+     * Inputs that isn't a valid expression, single values and inputs matched by custom expressions fall back to the expressions.
+     * <br>
+     *
+     * @return The builder.
+     */
+    public KamiBuilder useAstEngine() {
+        return useEngine(KamiEngine.AST);
+    }
+
+    /**
+     * Use the codegen engine.
+     * Same as {@link #useAstEngine()}, but the tree is compiled once into a function,
+     * with java classes and methods resolved ahead and called through method handles.
+     * Use this for inputs evaluated often, like GUI conditions.
+     * <br>
+     *
+     * @return The builder.
+     */
+    public KamiBuilder useCodegen() {
+        return useEngine(KamiEngine.CODEGEN);
+    }
+
+    /**
+     * Build a parser, that can be used from multiple threads.
+     * The default global storage is replaced with {@link ConcurrentGlobalStorage},
+     * and the expressions, handlers and print types of the parser can't be changed after it is built, see {@link KamiParser#freeze()}.
+     * Custom global storages and handlers must be thread-safe themselves.
+     * <br>
+     * Use {@link KamiParser#evaluateAsync} to parse off the main thread.
+     * <br>
+     *
+     * @return The builder.
+     */
+    public KamiBuilder threadSafe() {
+        this.threadSafe = true;
+        return this;
+    }
+
+    /**
+     * Set the max amount of compiled inputs the parser caches.
+     * Default is 256.
+     * <br>
+     *
+     * @param size The max amount of compiled inputs, 0 to disable the cache.
+     * @return The builder.
+     */
+    public KamiBuilder compileCacheSize(int size) {
+        this.compileCacheSize = size;
+        return this;
+    }
+
     // Build
     // ---
 
@@ -253,14 +326,24 @@ public class KamiBuilder {
         assert globalStorage != null : "Global storage can't be null, instead use disableGlobalStorage()";
 
         if (outputHandler == null) outputHandler = new DefaultOutputHandler();
+        if (threadSafe && globalStorage.getClass() == MemoryGlobalStorage.class)
+            globalStorage = new ConcurrentGlobalStorage();
         globalStorage.load(globalStorageId);
-        KamiParser parser = new KamiParser(expressions, typeHandler, outputHandler, globalStorage);
+        KamiParser parser = new KamiParser(
+                expressions,
+                typeHandler,
+                outputHandler,
+                globalStorage,
+                compileCacheSize
+        );
         if (defaultStorage != null) parser.setDefaultStorage(defaultStorage);
+        parser.setEngine(engine);
 
         parser.getPrintTypes().clear();
         parser.getPrintTypes().addAll(printTypes);
 
         parser.addHandlers(handlers);
+        if (threadSafe) parser.freeze();
         return parser;
     }
 }
@@ -80,17 +80,17 @@ public abstract class KamiExp {
      */
     @SuppressWarnings("ConstantConditions")
     public @Nullable KamiResult match(KamiState state) {
-        state.writeDebug("Matching expression: " + name);
+        state.writeDebug(() -> "Matching expression: " + name);
         Matcher matcher = pattern.matcher(state.getCurrentStr());
         if (!matcher.find()) return null;
-        state.writeDebug("Matched expression: " + name);
+        state.writeDebug(() -> "Matched expression: " + name);
 
         state.setCurrentExp(this);
         KamiResult res;
         try {
             res = execute(state, new KamiResult(state), matcher);
         } catch (Exception e) {
-            state.writeDebug("An error occurred while executing the expression: " + name);
+            state.writeDebug(() -> "An error occurred while executing the expression: " + name);
             return new KamiResult(state)
                     .panic(new KamiPanicError(
                             "An error occurred while executing the expression: " + name,
@@ -98,9 +98,11 @@ public abstract class KamiExp {
                     ));
         }
         if (res == null)
-            state.writeDebug("Result is null for expression: " + name);
-        else
-            state.writeDebug("Executed expression: " + name + " with result success:" + res.isSuccess() + ", panic:" + res.isPanic());
+            state.writeDebug(() -> "Result is null for expression: " + name);
+        else {
+            KamiResult executed = res;
+            state.writeDebug(() -> "Executed expression: " + name + " with result success:" + executed.isSuccess() + ", panic:" + executed.isPanic());
+        }
 
         return res != null
                 ? res
@@ -1,11 +1,17 @@
 package dk.tohjuler.mcutils.kami;
 
+import dk.tohjuler.mcutils.LruCache;
+import dk.tohjuler.mcutils.kami.ast.KamiAstParser;
+import dk.tohjuler.mcutils.kami.ast.KamiEvaluator;
+import dk.tohjuler.mcutils.kami.ast.KamiFunction;
+import dk.tohjuler.mcutils.kami.enums.KamiEngine;
 import dk.tohjuler.mcutils.kami.handlers.IGlobalStorage;
 import dk.tohjuler.mcutils.kami.handlers.IHandler;
 import dk.tohjuler.mcutils.kami.handlers.IOutputHandler;
 import dk.tohjuler.mcutils.kami.handlers.TypeHandler;
 import dk.tohjuler.mcutils.kami.storage.KamiStorage;
 import dk.tohjuler.mcutils.kami.storage.TypeItem;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.entity.Player;
@@ -13,14 +19,22 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Kami parser used for parsing inputs.
  * <br>
  * Use {@link KamiBuilder} to create a parser.
+ * <br>
+ * Parsing doesn't change the parser, so a parser can be used from multiple threads,
+ * if the global storage and handlers are thread-safe, see {@link KamiBuilder#threadSafe()}.
+ * The expressions, handlers and print types must not be changed while parsing.
+ * A thread-safe parser is frozen when it is built, so they can't be changed at all, see {@link #freeze()}.
  */
 @Getter
 public class KamiParser {
+    @Getter(AccessLevel.NONE)
     private final List<KamiExp> expressions;
 
     private final TypeHandler typeHandler;
@@ -28,15 +42,37 @@ public class KamiParser {
     private final IOutputHandler outputHandler;
     private final IGlobalStorage globalStorage;
 
-    private final List<IHandler> handlers = new ArrayList<>();
+    private volatile List<IHandler> handlers = new ArrayList<>();
 
-    private final List<Class<?>> printTypes = new ArrayList<>(Arrays.asList(
+    private volatile List<Class<?>> printTypes = new ArrayList<>(Arrays.asList(
             String.class, Integer.class, Long.class, Double.class, Float.class, Boolean.class
     ));
 
     @Setter
     private @Nullable KamiStorage<String> defaultStorage = null;
 
+    /**
+     * The engine used to evaluate inputs.
+     */
+    private volatile KamiEngine engine = KamiEngine.EXPRESSIONS;
+
+    /// The expressions sorted by priority, never modified after creation.
+    @Getter(AccessLevel.NONE)
+    private volatile KamiExp[] sortedExpressions;
+    /**
+     * The syntax of the AST engines enabled by the expressions, updated when the expressions are sorted.
+     */
+    private volatile KamiAstParser.Features features;
+    /**
+     * If the expressions, handlers and print types can't be changed, see {@link #freeze()}.
+     */
+    private volatile boolean frozen = false;
+
+    @Getter(AccessLevel.NONE)
+    private final LruCache<String, CompiledKami> compiledCache;
+    @Getter(AccessLevel.NONE)
+    private final KamiEvaluator evaluator;
+
     /**
      * Creates a new Kami parser.
      * Please use {@link KamiBuilder} to create a parser.
@@ -48,10 +84,29 @@ public class KamiParser {
      * @param globalStorage The global storage handler.
      */
     public KamiParser(List<KamiExp> expressions, TypeHandler typeHandler, IOutputHandler outputHandler, IGlobalStorage globalStorage) {
-        this.expressions = expressions;
+        this(expressions, typeHandler, outputHandler, globalStorage, 256);
+    }
+
+    /**
+     * Creates a new Kami parser.
+     * Please use {@link KamiBuilder} to create a parser.
+     * <br>
+     *
+     * @param expressions      The expressions to use.
+     * @param typeHandler      The type handler.
+     * @param outputHandler    The output handler.
+     * @param globalStorage    The global storage handler.
+     * @param compileCacheSize The max amount of compiled inputs to cache, 0 to disable.
+     */
+    public KamiParser(List<KamiExp> expressions, TypeHandler typeHandler, IOutputHandler outputHandler, IGlobalStorage globalStorage, int compileCacheSize) {
+        this.expressions = new ArrayList<>(expressions);
         this.typeHandler = typeHandler;
         this.outputHandler = outputHandler;
         this.globalStorage = globalStorage;
+        this.sortedExpressions = sortExpressions();
+        this.features = KamiAstParser.Features.from(this.expressions);
+        this.compiledCache = new LruCache<>(compileCacheSize);
+        this.evaluator = new KamiEvaluator(this, compileCacheSize);
     }
 
     /**
@@ -79,6 +134,8 @@ public class KamiParser {
 
     /**
      * Parses the input.
+     * The input is compiled once and cached after the replacers are applied, see {@link #compile(String)}.
+     * With the {@link KamiEngine#AST} or {@link KamiEngine#CODEGEN} engine, the input is evaluated as a tree if it is a valid expression.
      * <br>
      *
      * @param input     The input to parse.
@@ -87,6 +144,128 @@ public class KamiParser {
      * @return The result of the parsing.
      */
     public @NotNull TypeItem<String> parse(String input, @Nullable Player p, Map<String, Object> replacers) {
+        if (replacers == null || replacers.isEmpty())
+            return execute(getCompiled(input), p, null);
+
+        // Only the replaced input is compiled, the source is never executed as is.
+        return run(createState(input, p, replacers), null);
+    }
+
+    /**
+     * Parses the input on an executor.
+     * The player is accessed from the executor, so only use thread-safe methods of it in expressions.
+     * <br>
+     *
+     * @param input    The input to parse.
+     * @param p        The player to parse for.
+     * @param executor The executor to parse on.
+     * @return A future with the result of the parsing.
+     */
+    public CompletableFuture<TypeItem<String>> evaluateAsync(String input, @Nullable Player p, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> parse(input, p), executor);
+    }
+
+    /**
+     * Compiles the input into a filter of the expressions that match it, that can be executed multiple times.
+     * The filter is not cached, use {@link #getCompiled(String)} for a cached filter.
+     * <br>
+     *
+     * @param input The input to compile.
+     * @return The compiled filter.
+     */
+    public @NotNull CompiledKami compile(String input) {
+        return new CompiledKami(input, sortedExpressions);
+    }
+
+    /**
+     * Gets the compiled filter for the input, from the cache if present.
+     * <br>
+     *
+     * @param input The input to compile.
+     * @return The compiled filter.
+     */
+    public @NotNull CompiledKami getCompiled(String input) {
+        return compiledCache.computeIfAbsent(input, this::compile);
+    }
+
+    /**
+     * Gets the expressions of the parser.
+     * Use {@link #addExpression(KamiExp)} to add expressions after the parser is built.
+     * <br>
+     *
+     * @return An unmodifiable view of the expressions.
+     */
+    public List<KamiExp> getExpressions() {
+        return Collections.unmodifiableList(expressions);
+    }
+
+    /**
+     * Adds an expression to the parser, and sorts the expressions again.
+     * <br>
+     *
+     * @throws IllegalStateException If the parser is frozen.
+     *
+     * @param expression The expression to add.
+     */
+    public void addExpression(KamiExp expression) {
+        checkNotFrozen();
+        expressions.add(expression);
+        clearCompiledCache();
+    }
+
+    /**
+     * Adds expressions to the parser, and sorts the expressions again.
+     * <br>
+     *
+     * @throws IllegalStateException If the parser is frozen.
+     *
+     * @param expressions The expressions to add.
+     */
+    public void addExpressions(List<KamiExp> expressions) {
+        checkNotFrozen();
+        this.expressions.addAll(expressions);
+        clearCompiledCache();
+    }
+
+    /**
+     * Clears the cache of compiled filters, and sorts the expressions again.
+     * Needs to be called if an expression is changed after the parser is built.
+     */
+    public void clearCompiledCache() {
+        sortedExpressions = sortExpressions();
+        features = KamiAstParser.Features.from(expressions);
+        compiledCache.clear();
+        evaluator.clearCache();
+    }
+
+    /**
+     * Executes a compiled input.
+     * <br>
+     *
+     * @param compiled  The compiled filter.
+     * @param p         The player to parse for.
+     * @param replacers A map of String to Object to replace in the input.
+     * @return The result of the parsing.
+     */
+    public @NotNull TypeItem<String> execute(CompiledKami compiled, @Nullable Player p, @Nullable Map<String, Object> replacers) {
+        return run(createState(compiled.getSource(), p, replacers), compiled);
+    }
+
+    private @NotNull TypeItem<String> run(KamiState state, @Nullable CompiledKami compiled) {
+        String input = state.getCurrentStr();
+
+        if (engine != KamiEngine.EXPRESSIONS) {
+            KamiFunction function = evaluator.getFunction(input);
+            if (function != null) return evaluator.evaluate(function, state);
+        }
+
+        // Object handles are given in order, so the replaced input is the same for each execution.
+        CompiledKami filter = compiled != null && input.equals(compiled.getSource()) ? compiled : getCompiled(input);
+
+        return runExpressions(state, filter);
+    }
+
+    private KamiState createState(String input, @Nullable Player p, @Nullable Map<String, Object> replacers) {
         KamiState state = new KamiState(this, p);
         if (replacers == null || replacers.isEmpty())
             state.getLocalStorage().put("input", input);
@@ -104,26 +283,32 @@ public class KamiParser {
                     continue;
                 }
 
-                UUID uuid = UUID.randomUUID();
-                state.getObjectStorage().put(uuid, entry.getValue());
-                input = input.replace(entry.getKey(), "obj:{" + uuid + "}");
+                input = input.replace(entry.getKey(), state.putObject(entry.getValue()));
             }
             state.getLocalStorage().put("input", input);
         }
 
         state.setCurrentStr(input);
+        return state;
+    }
 
-        expressions.sort(Comparator.comparing(exp -> exp.getPriority().getValue()));
+    private @NotNull TypeItem<String> runExpressions(KamiState state, @Nullable CompiledKami filter) {
+        Player p = state.getPlayer();
+        KamiExp[] exps = filter != null ? filter.getExpressions() : sortedExpressions;
 
         boolean panic = false;
-        for (KamiExp exp : expressions) {
-            KamiResult result = exp.match(state);
+        for (int i = 0; i < exps.length; i++) {
+            String current = state.getCurrentStr();
+            if (filter != null && filter.isKnownMiss(i, current)) continue;
+
+            KamiResult result = exps[i].match(state);
+            if (filter != null) filter.record(i, current, result != null);
             if (result == null) continue;
 
             if (!result.isPanic()) {
                 if (result.isBlocking()) {
                     state.writeDebug("Blocking expression, stopping parsing.");
-                    state.writeDebug("State: " + state);
+                    state.writeDebug(() -> "State: " + state);
                     break;
                 }
                 continue;
@@ -131,10 +316,10 @@ public class KamiParser {
 
             panic = true;
             state.writeDebug("Panic error is written to err, stopping parsing.");
-            state.writeDebug("Input: " + state.getLocalStorage().get("input").asString("ERROR: Not found"));
-            state.writeDebug("Reported old expression: " + result.getOldExp());
-            state.writeDebug("State expression: " + state.getCurrentExp());
-            state.writeDebug("State: " + state);
+            state.writeDebug(() -> "Input: " + state.getLocalStorage().get("input").asString("ERROR: Not found"));
+            state.writeDebug(() -> "Reported old expression: " + result.getOldExp());
+            state.writeDebug(() -> "State expression: " + state.getCurrentExp());
+            state.writeDebug(() -> "State: " + state);
             outputHandler.err(result.getPanicError(), p);
         }
 
@@ -143,13 +328,33 @@ public class KamiParser {
         return new TypeItem<>(state.getCurrentStr());
     }
 
+    /**
+     * Set the engine used to evaluate inputs.
+     * Clears the cached functions, as they depend on the engine.
+     * <br>
+     *
+     * @param engine The engine.
+     */
+    public void setEngine(KamiEngine engine) {
+        this.engine = engine;
+        evaluator.clearCache();
+    }
+
+    private KamiExp[] sortExpressions() {
+        KamiExp[] sorted = expressions.toArray(new KamiExp[0]);
+        Arrays.sort(sorted, Comparator.comparing(exp -> exp.getPriority().getValue()));
+        return sorted;
+    }
+
     /**
      * Add handlers to the parser.
      * <br>
      *
      * @param handlers The handlers to add.
+     * @throws IllegalStateException If the parser is frozen.
      */
     public void addHandlers(List<IHandler> handlers) {
+        checkNotFrozen();
         this.handlers.addAll(handlers);
     }
 
@@ -158,11 +363,29 @@ public class KamiParser {
      * <br>
      *
      * @param handler The handler to add.
+     * @throws IllegalStateException If the parser is frozen.
      */
     public void addHandler(IHandler handler) {
+        checkNotFrozen();
         handlers.add(handler);
     }
 
+    /**
+     * Freezes the parser, so the expressions, handlers and print types can't be changed.
+     * Adding expressions or handlers then throws, and the lists of handlers and print types are unmodifiable.
+     * Called by {@link KamiBuilder#build()} for thread-safe parsers.
+     */
+    public void freeze() {
+        if (frozen) return;
+        handlers = Collections.unmodifiableList(new ArrayList<>(handlers));
+        printTypes = Collections.unmodifiableList(new ArrayList<>(printTypes));
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("The parser is thread-safe, and can't be changed after it is built");
+    }
+
     // Tests methods
 
     @SuppressWarnings("SameReturnValue")
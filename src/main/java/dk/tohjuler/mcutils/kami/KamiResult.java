@@ -4,7 +4,6 @@ import dk.tohjuler.mcutils.kami.errors.KamiError;
 import lombok.Getter;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -121,9 +120,7 @@ public class KamiResult {
      * @return The current result.
      */
     public KamiResult successWithObj(Object obj) {
-        UUID uuid = UUID.randomUUID();
-        currentState.getObjectStorage().put(uuid, obj);
-        return success("obj:{" + uuid + "}");
+        return success(currentState.putObject(obj));
     }
 
     // Failures
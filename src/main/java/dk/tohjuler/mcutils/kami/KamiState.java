@@ -6,14 +6,16 @@ import dk.tohjuler.mcutils.kami.handlers.IGlobalStorage;
 import dk.tohjuler.mcutils.kami.handlers.IHandler;
 import dk.tohjuler.mcutils.kami.handlers.TypeHandler;
 import dk.tohjuler.mcutils.kami.storage.KamiStorage;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.function.Supplier;
-import java.util.regex.Matcher;
 
 /**
  * A holder for the current step in the execution of the Kami expression.
@@ -39,7 +41,18 @@ public class KamiState {
      * - "input" - The input string.
      */
     private final KamiStorage<String> localStorage = new KamiStorage<>();
+    /// Objects referenced by the old format, obj:{UUID}, see {@link #getObjectStorage()}.
+    @Getter(AccessLevel.NONE)
     private final KamiStorage<UUID> objectStorage = new KamiStorage<>();
+    /// Objects referenced by handle, obj:{handle} is the index in the list.
+    @Getter(AccessLevel.NONE)
+    private final List<Object> objects = new ArrayList<>();
+
+    /// The raw value of "logLevel" in the local storage, the cached level was parsed from.
+    @Getter(AccessLevel.NONE)
+    private @Nullable Object rawLogLevel;
+    @Getter(AccessLevel.NONE)
+    private LogLevel logLevel = LogLevel.ERROR;
 
     public KamiState(KamiParser parser, @Nullable Player player) {
         this.parser = parser;
@@ -63,9 +76,7 @@ public class KamiState {
      * @param error   The error to log.
      */
     public void write(LogLevel level, String message, @Nullable KamiError error) {
-        LogLevel currentLevel = LogLevel.valueOf(localStorage.get("logLevel").asString("ERROR"));
-
-        if (!level.isAtLeast(currentLevel)) return;
+        if (!isLogging(level)) return;
 
         if (error != null) {
             if (currentExp != null) error.setExp(currentExp);
@@ -76,6 +87,36 @@ public class KamiState {
         parser.getOutputHandler().out(level.name() + ": " + message, player);
     }
 
+    /**
+     * Gets the log level, from "logLevel" in the local storage.
+     * The level is only parsed again, if the stored value changes.
+     * <br>
+     *
+     * @return The log level, ERROR if not set.
+     */
+    public LogLevel getLogLevel() {
+        Object raw = localStorage.get("logLevel").getPlane();
+        if (raw != rawLogLevel) {
+            logLevel = raw == null ? LogLevel.ERROR
+                    : raw instanceof LogLevel ? (LogLevel) raw
+                    : LogLevel.valueOf(raw.toString());
+            rawLogLevel = raw;
+        }
+        return logLevel;
+    }
+
+    /**
+     * Checks if messages with the level are written.
+     * Use this to skip building messages, that would be filtered anyway.
+     * <br>
+     *
+     * @param level The level of the message.
+     * @return If the level is at least the current log level.
+     */
+    public boolean isLogging(LogLevel level) {
+        return level.isAtLeast(getLogLevel());
+    }
+
     /**
      * Writes a message to the output handler.
      * <br>
@@ -120,6 +161,17 @@ public class KamiState {
         write(LogLevel.DEBUG, message, null);
     }
 
+    /**
+     * Write a debug message to the out channel.
+     * The message is only built if debug messages are written.
+     * <br>
+     *
+     * @param message The supplier of the message to log.
+     */
+    public void writeDebug(Supplier<String> message) {
+        if (isLogging(LogLevel.DEBUG)) write(LogLevel.DEBUG, message.get(), null);
+    }
+
     /**
      * Write an error message to the err channel.
      * <br>
@@ -144,6 +196,53 @@ public class KamiState {
     // Utils
     // ---
 
+    /**
+     * Stores an object in the state.
+     * <br>
+     *
+     * @param obj The object to store.
+     * @return The reference to the object, ex. obj:{7}
+     */
+    public String putObject(Object obj) {
+        objects.add(obj);
+        return KamiUtils.objectRef(objects.size() - 1);
+    }
+
+    /**
+     * Gets the storage of objects referenced by the old format, obj:{UUID}.
+     * Objects stored in it can still be referenced, but objects stored by expressions are no longer in it,
+     * as they are stored by handle with {@link #putObject(Object)}.
+     * <br>
+     *
+     * @return The storage of the old format.
+     * @deprecated Use {@link #putObject(Object)} and {@link #getObjFromRef(String)} instead
+     */
+    @Deprecated
+    public KamiStorage<UUID> getObjectStorage() {
+        return objectStorage;
+    }
+
+    /**
+     * Get an object from its handle.
+     * <br>
+     *
+     * @param handle The handle of the object.
+     * @return The object if found, else null.
+     */
+    public @Nullable Object getObject(int handle) {
+        return handle >= 0 && handle < objects.size() ? objects.get(handle) : null;
+    }
+
+    /**
+     * Gets the amount of objects stored in the state, in both formats.
+     * <br>
+     *
+     * @return The amount of objects.
+     */
+    public int getObjectCount() {
+        return objects.size() + objectStorage.size();
+    }
+
     /**
      * Check if there is an object reference in the string, and return the object if found.
      * <br>
@@ -152,22 +251,29 @@ public class KamiState {
      * @return The object if found, else null.
      */
     public @Nullable Object dejectObj(String check) {
-        Matcher matcher = KamiUtils.OBJECT_REF_PATTERN.matcher(check);
-        if (!matcher.matches()) return null;
+        if (!KamiUtils.isObjectRef(check)) return null;
 
-        return getObjFromRef(matcher.group());
+        return getObjFromRef(check);
     }
 
     /**
      * Get an object from a reference.
-     * Reference format: obj:{UUID}
+     * Reference format: obj:{handle} or obj:{UUID}
      * <br>
      *
      * @param ref The reference to get the object from.
      * @return The object if found, else null.
      */
     public @Nullable Object getObjFromRef(String ref) {
-        UUID uuid = UUID.fromString(ref.substring(5, ref.length() - 1));
+        int handle = KamiUtils.parseObjectHandle(ref);
+        if (handle >= 0) return getObject(handle);
+
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(ref.substring(5, ref.length() - 1));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
         return objectStorage.get(uuid).getPlane();
     }
 
@@ -193,13 +299,13 @@ public class KamiState {
      * @return The handler if found, else null.
      */
     public <T extends IHandler> T getHandler(Class<T> clazz, Supplier<T> supplier) {
-        return parser.getHandlers().stream().filter(clazz::isInstance).map(clazz::cast).findFirst().orElse(supplier.get());
+        return parser.getHandlers().stream().filter(clazz::isInstance).map(clazz::cast).findFirst().orElseGet(supplier);
     }
 
     /**
      * Parse a string into an object.
      * Supports:
-     * - Object references: obj:{UUID}
+     * - Object references: obj:{handle} or obj:{UUID}
      * - Global variables: #{name}
      * - Local variables: _{name}
      * - Types from the used type handler.
@@ -210,7 +316,7 @@ public class KamiState {
      * @return The parsed object.
      */
     public @Nullable Object parseObject(String input) {
-        if (KamiUtils.OBJECT_REF_PATTERN.matcher(input).matches()) return getObjFromRef(input);
+        if (KamiUtils.isObjectRef(input)) return getObjFromRef(input);
         if (input.startsWith("#") && getGlobalStorage().get("var:" + input.substring(1)).isPresent())
             getGlobalStorage().get("var:" + input.substring(1)).get();
         if (input.startsWith("_") && localStorage.get(input.substring(1)).isPresent())
@@ -4,9 +4,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
@@ -14,11 +14,17 @@ import java.util.regex.Pattern;
  * Utility methods for Kami.
  */
 public class KamiUtils {
-    public static final Pattern OBJECT_REF_PATTERN = Pattern.compile("obj:\\{\\b[0-9a-fA-F]{8}\\b-[0-9a-fA-F]{4}\\b-[0-9a-fA-F]{4}\\b-[0-9a-fA-F]{4}\\b-[0-9a-fA-F]{12}\\b}");
+    /// Matches an object reference, obj:{handle} or the old format obj:{UUID}.
+    public static final Pattern OBJECT_REF_PATTERN = Pattern.compile("obj:\\{(?:\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})}");
 
-    private static final Map<String, Map<String, Function<Object[], Object>>> methodOverrides = new HashMap<>();
+    private static final String[] OBJECT_REFS = new String[64];
+
+    private static final Map<String, Map<String, Function<Object[], Object>>> methodOverrides = new ConcurrentHashMap<>();
 
     static {
+        for (int i = 0; i < OBJECT_REFS.length; i++)
+            OBJECT_REFS[i] = "obj:{" + i + "}";
+
         addMethodOverride(
                 ArrayList.class,
                 "get",
@@ -41,7 +47,7 @@ public class KamiUtils {
      * @param function   The function to override the method with.
      */
     public static void addMethodOverride(Class<?> clazz, String methodName, Function<Object[], Object> function) {
-        methodOverrides.computeIfAbsent(clazz.getSimpleName(), k -> new HashMap<>()).put(methodName, function);
+        methodOverrides.computeIfAbsent(ReflectionCache.getSimpleName(clazz), k -> new ConcurrentHashMap<>()).put(methodName, function);
     }
 
     /**
@@ -53,7 +59,8 @@ public class KamiUtils {
      * @return If the method is overridden.
      */
     public static boolean hasMethodOverridden(Class<?> clazz, String methodName) {
-        return methodOverrides.get(clazz.getSimpleName()) != null && methodOverrides.get(clazz.getSimpleName()).containsKey(methodName);
+        Map<String, Function<Object[], Object>> overrides = methodOverrides.get(ReflectionCache.getSimpleName(clazz));
+        return overrides != null && overrides.containsKey(methodName);
     }
 
     /**
@@ -66,7 +73,7 @@ public class KamiUtils {
      * @return The overridden method, or null if not overridden.
      */
     public static @Nullable Object runMethodOverride(Class<?> clazz, String methodName, Object... input) {
-        Map<String, Function<Object[], Object>> overrides = methodOverrides.get(clazz.getSimpleName());
+        Map<String, Function<Object[], Object>> overrides = methodOverrides.get(ReflectionCache.getSimpleName(clazz));
         if (overrides == null) return null;
 
         Function<Object[], Object> override = overrides.get(methodName);
@@ -77,6 +84,8 @@ public class KamiUtils {
 
     /**
      * Gets a method from a class.
+     * The class, its superclasses and interfaces are searched.
+     * The result is cached, see {@link ReflectionCache#getDeclaredMethod(Class, String, Class[])}.
      * <br>
      *
      * @param clazz      The class to get the method from.
@@ -84,21 +93,95 @@ public class KamiUtils {
      * @return The method.
      */
     public static @Nullable Method getMethod(Class<?> clazz, String methodName, Class<?>... params) {
-        Class<?> current = clazz;
-        // Check superclasses
-        do {
-            try {
-                return current.getDeclaredMethod(methodName, params);
-            } catch (NoSuchMethodException ignored) {
-            }
+        ReflectionCache.MethodAccessor accessor = ReflectionCache.getDeclaredMethod(clazz, methodName, params);
+        return accessor != null ? accessor.getMethod() : null;
+    }
 
-            // Check interfaces
-            for (Class<?> iface : current.getInterfaces()) {
-                Method method = getMethod(iface, methodName, params);
-                if (method != null) return method;
+    /**
+     * Checks if the arguments can be passed to the parameter types.
+     * Null can be passed to all non-primitive types.
+     * <br>
+     *
+     * @param types The parameter types.
+     * @param args  The arguments.
+     * @return If the arguments are applicable.
+     */
+    public static boolean isApplicable(Class<?>[] types, Object[] args) {
+        if (types.length != args.length) return false;
+        for (int i = 0; i < types.length; i++) {
+            if (args[i] == null) {
+                if (types[i].isPrimitive()) return false;
+                continue;
             }
-        } while ((current = current.getSuperclass()) != null);
+            if (!wrap(types[i]).isInstance(args[i])) return false;
+        }
+        return true;
+    }
 
-        return null;
+    /**
+     * Gets the wrapper type of a primitive type.
+     * <br>
+     *
+     * @param type The type.
+     * @return The wrapper type, or the type itself if not primitive.
+     */
+    public static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == char.class) return Character.class;
+        if (type == byte.class) return Byte.class;
+        if (type == short.class) return Short.class;
+        return Void.class;
+    }
+
+    // Object refs
+    // ---
+
+    /**
+     * Gets the reference for an object handle.
+     * <br>
+     *
+     * @param handle The handle of the object in the state.
+     * @return The reference, ex. obj:{7}
+     */
+    public static String objectRef(int handle) {
+        return handle < OBJECT_REFS.length ? OBJECT_REFS[handle] : "obj:{" + handle + "}";
+    }
+
+    /**
+     * Parses the handle from an object reference, without regex.
+     * <br>
+     *
+     * @param ref The reference, ex. obj:{7}
+     * @return The handle, or -1 if the string is not a handle reference.
+     */
+    public static int parseObjectHandle(String ref) {
+        int len = ref.length();
+        // At most 9 digits, so the handle can't overflow
+        if (len < 7 || len > 15 || !ref.startsWith("obj:{") || ref.charAt(len - 1) != '}') return -1;
+
+        int handle = 0;
+        for (int i = 5; i < len - 1; i++) {
+            char c = ref.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            handle = handle * 10 + (c - '0');
+        }
+        return handle;
+    }
+
+    /**
+     * Checks if a string is an object reference, in either format.
+     * <br>
+     *
+     * @param str The string to check.
+     * @return If the string is an object reference.
+     */
+    public static boolean isObjectRef(String str) {
+        if (!str.startsWith("obj:{")) return false;
+        return parseObjectHandle(str) >= 0 || OBJECT_REF_PATTERN.matcher(str).matches();
     }
 }
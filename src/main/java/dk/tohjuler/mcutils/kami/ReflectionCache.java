@@ -0,0 +1,509 @@
+package dk.tohjuler.mcutils.kami;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches resolved classes, methods and fields for Kami.
+ * <br>
+ * Classes are cached per class loader with weak keys and values, so plugin reloads don't leak.
+ * Methods and fields are cached with a {@link ClassValue}, so they live as long as the class.
+ * Methods are cached by name and arity, and the method found for a call is cached by the classes of the arguments,
+ * so a call with the same argument classes doesn't check the candidates again.
+ * <br>
+ * Methods and fields are accessed through {@link MethodHandle}s, resolved once.
+ */
+public final class ReflectionCache {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /// The max amount of call signatures to cache per class, the cache of a class is cleared when full.
+    private static final int MAX_CALLS = 256;
+
+    private static final Map<ClassLoader, Map<String, WeakReference<Class<?>>>> CLASSES = new WeakHashMap<>();
+
+    private static final ClassValue<ClassData> DATA = new ClassValue<ClassData>() {
+        @Override
+        protected ClassData computeValue(@NotNull Class<?> type) {
+            return new ClassData(type);
+        }
+    };
+
+    private ReflectionCache() {
+    }
+
+    // Classes
+    // ---
+
+    /**
+     * Finds a class from its name, using the class loader of Kami.
+     * Same as {@link Class#forName(String)}.
+     * <br>
+     *
+     * @param name The fully qualified name of the class.
+     * @return The class, or null if not found.
+     */
+    public static @Nullable Class<?> findClass(String name) {
+        return findClass(name, ReflectionCache.class.getClassLoader());
+    }
+
+    /**
+     * Finds a class from its name.
+     * Classes not found are not cached, as they may be loaded later.
+     * <br>
+     *
+     * @param name   The fully qualified name of the class.
+     * @param loader The class loader to use.
+     * @return The class, or null if not found.
+     */
+    public static @Nullable Class<?> findClass(String name, ClassLoader loader) {
+        Map<String, WeakReference<Class<?>>> classes;
+        synchronized (CLASSES) {
+            classes = CLASSES.computeIfAbsent(loader, l -> new ConcurrentHashMap<>());
+        }
+
+        WeakReference<Class<?>> ref = classes.get(name);
+        Class<?> clazz = ref != null ? ref.get() : null;
+        if (clazz != null) return clazz;
+
+        try {
+            clazz = Class.forName(name, true, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        classes.put(name, new WeakReference<>(clazz));
+        return clazz;
+    }
+
+    // Methods
+    // ---
+
+    /**
+     * Gets the public methods with the name and arity.
+     * Methods declared in a non-public class are replaced with the method from a public super type.
+     * <br>
+     *
+     * @param clazz The class.
+     * @param name  The name of the methods.
+     * @param arity The amount of parameters.
+     * @return The methods.
+     */
+    public static List<MethodAccessor> getMethods(Class<?> clazz, String name, int arity) {
+        return DATA.get(clazz).methods.computeIfAbsent(new MethodKey(name, arity), key -> {
+            List<MethodAccessor> res = new ArrayList<>();
+            for (Method method : clazz.getMethods()) {
+                if (!method.getName().equals(name) || method.getParameterCount() != arity) continue;
+
+                Method publicMethod = Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                        ? method
+                        : publicVariant(method.getDeclaringClass(), method);
+                if (publicMethod != null) res.add(new MethodAccessor(publicMethod));
+            }
+            return Collections.unmodifiableList(res);
+        });
+    }
+
+    /**
+     * Finds a public method, that can be called with the given arguments.
+     * When more overloads can be called, the most specific is used, like the Java compiler picks it.
+     * An exact or boxed match is used before a super type, and {@code Object} last.
+     * The result is cached by the classes of the arguments,
+     * unless an argument is from a class loader other than the one of the class, so plugin reloads don't leak.
+     * <br>
+     *
+     * @param clazz      The class to find the method in.
+     * @param name       The name of the method.
+     * @param args       The arguments to call the method with.
+     * @param onlyStatic If only static methods should be found.
+     * @return The method, or null if not found.
+     */
+    public static @Nullable MethodAccessor findMethod(Class<?> clazz, String name, Object[] args, boolean onlyStatic) {
+        ClassData data = DATA.get(clazz);
+        CallKey key = new CallKey(name, onlyStatic, args);
+        Optional<MethodAccessor> cached = data.calls.get(key);
+        if (cached != null) return cached.orElse(null);
+
+        MethodAccessor found = null;
+        for (MethodAccessor accessor : getMethods(clazz, name, args.length)) {
+            if (onlyStatic && !accessor.isStatic()) continue;
+            if (!KamiUtils.isApplicable(accessor.getParameterTypes(), args)) continue;
+            if (found == null || isBetter(accessor, found, args)) found = accessor;
+        }
+
+        if (key.isCacheable(clazz.getClassLoader())) {
+            if (data.calls.size() >= MAX_CALLS) data.calls.clear();
+            data.calls.put(key, Optional.ofNullable(found));
+        }
+        return found;
+    }
+
+    /**
+     * Checks if a method should be called over another, when both can be called with the arguments.
+     * The order of {@link Class#getMethods()} is unspecified, so ties are broken by the signature.
+     */
+    private static boolean isBetter(MethodAccessor candidate, MethodAccessor best, Object[] args) {
+        boolean candidateSpecific = isAsSpecific(candidate.getParameterTypes(), best.getParameterTypes());
+        boolean bestSpecific = isAsSpecific(best.getParameterTypes(), candidate.getParameterTypes());
+        if (candidateSpecific != bestSpecific) return candidateSpecific;
+
+        int diff = distance(candidate.getParameterTypes(), args) - distance(best.getParameterTypes(), args);
+        if (diff != 0) return diff < 0;
+        if (candidate.getMethod().isBridge() != best.getMethod().isBridge()) return !candidate.getMethod().isBridge();
+        return candidate.getMethod().toString().compareTo(best.getMethod().toString()) < 0;
+    }
+
+    /**
+     * Checks if every parameter type can be passed to the other parameter types.
+     */
+    private static boolean isAsSpecific(Class<?>[] types, Class<?>[] other) {
+        for (int i = 0; i < types.length; i++)
+            if (!KamiUtils.wrap(other[i]).isAssignableFrom(KamiUtils.wrap(types[i]))) return false;
+        return true;
+    }
+
+    /**
+     * Gets how far the parameter types are from the classes of the arguments, 0 if they are exact or boxed.
+     */
+    private static int distance(Class<?>[] types, Object[] args) {
+        int distance = 0;
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = KamiUtils.wrap(types[i]);
+            if (type == Object.class) distance += 1 << 16; // Object last
+            else if (args[i] != null) distance += distance(args[i].getClass(), type);
+        }
+        return distance;
+    }
+
+    /**
+     * Gets the amount of super types between a class and one of its super types.
+     */
+    private static int distance(Class<?> clazz, Class<?> type) {
+        if (clazz == type) return 0;
+
+        int best = Integer.MAX_VALUE >> 1;
+        Class<?> superclass = clazz.getSuperclass();
+        if (superclass != null && type.isAssignableFrom(superclass)) best = distance(superclass, type);
+        for (Class<?> iface : clazz.getInterfaces())
+            if (type.isAssignableFrom(iface)) best = Math.min(best, distance(iface, type));
+        return best + 1;
+    }
+
+    /**
+     * Gets a declared method with the exact parameter types,
+     * from the class, its superclasses or interfaces.
+     * The method is made accessible.
+     * <br>
+     *
+     * @param clazz  The class.
+     * @param name   The name of the method.
+     * @param params The parameter types.
+     * @return The method, or null if not found.
+     */
+    public static @Nullable MethodAccessor getDeclaredMethod(Class<?> clazz, String name, Class<?>... params) {
+        List<MethodAccessor> candidates = DATA.get(clazz).declaredMethods.computeIfAbsent(new MethodKey(name, params.length), key -> {
+            List<MethodAccessor> res = new ArrayList<>();
+            collectDeclared(clazz, name, params.length, res);
+            return Collections.unmodifiableList(res);
+        });
+
+        for (MethodAccessor accessor : candidates)
+            if (Arrays.equals(accessor.getParameterTypes(), params)) return accessor;
+        return null;
+    }
+
+    private static void collectDeclared(Class<?> clazz, String name, int arity, List<MethodAccessor> res) {
+        Class<?> current = clazz;
+        // Check superclasses
+        do {
+            for (Method method : current.getDeclaredMethods())
+                if (method.getName().equals(name) && method.getParameterCount() == arity)
+                    res.add(new MethodAccessor(method));
+
+            // Check interfaces
+            for (Class<?> iface : current.getInterfaces())
+                collectDeclared(iface, name, arity, res);
+        } while ((current = current.getSuperclass()) != null);
+    }
+
+    private static @Nullable Method publicVariant(Class<?> clazz, Method method) {
+        List<Class<?>> types = new ArrayList<>(Arrays.asList(clazz.getInterfaces()));
+        if (clazz.getSuperclass() != null) types.add(clazz.getSuperclass());
+
+        for (Class<?> type : types) {
+            if (Modifier.isPublic(type.getModifiers())) {
+                try {
+                    return type.getMethod(method.getName(), method.getParameterTypes());
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+            Method found = publicVariant(type, method);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    // Fields
+    // ---
+
+    /**
+     * Gets a field from the class or its superclasses.
+     * The field is made accessible.
+     * <br>
+     *
+     * @param clazz The class.
+     * @param name  The name of the field.
+     * @return The field, or null if not found.
+     */
+    public static @Nullable FieldAccessor getField(Class<?> clazz, String name) {
+        return DATA.get(clazz).fields.computeIfAbsent(name, key -> {
+            Class<?> current = clazz;
+            do {
+                try {
+                    return Optional.of(new FieldAccessor(current.getDeclaredField(name)));
+                } catch (NoSuchFieldException ignored) {
+                }
+            } while ((current = current.getSuperclass()) != null);
+            return Optional.empty();
+        }).orElse(null);
+    }
+
+    // Names
+    // ---
+
+    /**
+     * Gets the simple name of a class.
+     * <br>
+     *
+     * @param clazz The class.
+     * @return The simple name.
+     */
+    public static String getSimpleName(Class<?> clazz) {
+        return DATA.get(clazz).simpleName;
+    }
+
+    // Holders
+    // ---
+
+    private static class ClassData {
+        private final String simpleName;
+        private final Map<MethodKey, List<MethodAccessor>> methods = new ConcurrentHashMap<>();
+        private final Map<MethodKey, List<MethodAccessor>> declaredMethods = new ConcurrentHashMap<>();
+        private final Map<CallKey, Optional<MethodAccessor>> calls = new ConcurrentHashMap<>();
+        private final Map<String, Optional<FieldAccessor>> fields = new ConcurrentHashMap<>();
+
+        private ClassData(Class<?> clazz) {
+            this.simpleName = clazz.getSimpleName();
+        }
+    }
+
+    private static class MethodKey {
+        private final String name;
+        private final int arity;
+
+        private MethodKey(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MethodKey)) return false;
+            MethodKey key = (MethodKey) o;
+            return arity == key.arity && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() * 31 + arity;
+        }
+    }
+
+    private static class CallKey {
+        private final String name;
+        private final boolean onlyStatic;
+        /// The classes of the arguments, null for null arguments.
+        private final Class<?>[] argTypes;
+        private final int hash;
+
+        private CallKey(String name, boolean onlyStatic, Object[] args) {
+            this.name = name;
+            this.onlyStatic = onlyStatic;
+            this.argTypes = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++)
+                argTypes[i] = args[i] != null ? args[i].getClass() : null;
+            this.hash = (name.hashCode() * 31 + Arrays.hashCode(argTypes)) * 31 + (onlyStatic ? 1 : 0);
+        }
+
+        /**
+         * Checks if the key only holds classes that live as long as the class loader.
+         */
+        private boolean isCacheable(@Nullable ClassLoader loader) {
+            for (Class<?> type : argTypes) {
+                if (type == null) continue;
+                ClassLoader typeLoader = type.getClassLoader();
+                if (typeLoader != null && typeLoader != loader) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CallKey)) return false;
+            CallKey key = (CallKey) o;
+            return hash == key.hash && onlyStatic == key.onlyStatic && name.equals(key.name) && Arrays.equals(argTypes, key.argTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A resolved method, with a method handle taking the arguments as an array.
+     */
+    @Getter
+    public static class MethodAccessor {
+        private final Method method;
+        private final Class<?>[] parameterTypes;
+        private final boolean isStatic;
+        /**
+         * (Object[])Object for static methods, (Object, Object[])Object for instance methods.
+         * Null if the method can't be accessed through a handle.
+         */
+        private final @Nullable MethodHandle handle;
+
+        MethodAccessor(Method method) {
+            this.method = method;
+            this.parameterTypes = method.getParameterTypes();
+            this.isStatic = Modifier.isStatic(method.getModifiers());
+
+            MethodHandle handle = null;
+            try {
+                method.setAccessible(true);
+                int arity = parameterTypes.length;
+                handle = LOOKUP.unreflect(method)
+                        .asType(MethodType.genericMethodType(isStatic ? arity : arity + 1))
+                        .asSpreader(Object[].class, arity);
+            } catch (IllegalAccessException | RuntimeException ignored) {
+                // Fall back to Method#invoke
+            }
+            this.handle = handle;
+        }
+
+        /**
+         * Invokes the method.
+         * <br>
+         *
+         * @param target The object to invoke the method on, ignored for static methods.
+         * @param args   The arguments.
+         * @return The result of the method, null for void methods.
+         * @throws Exception If the method throws, or can't be accessed.
+         */
+        public @Nullable Object invoke(@Nullable Object target, Object... args) throws Exception {
+            if (handle == null) return method.invoke(target, args);
+
+            try {
+                if (isStatic) return (Object) handle.invokeExact(args);
+                return (Object) handle.invokeExact(target, args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+    }
+
+    /**
+     * A resolved field, with method handles for getting and setting.
+     */
+    @Getter
+    public static class FieldAccessor {
+        private final Field field;
+        private final boolean isStatic;
+        /// ()Object for static fields, (Object)Object for instance fields. Null if not accessible.
+        private final @Nullable MethodHandle getter;
+        /// (Object)void for static fields, (Object, Object)void for instance fields. Null if not accessible or final.
+        private final @Nullable MethodHandle setter;
+
+        FieldAccessor(Field field) {
+            this.field = field;
+            this.isStatic = Modifier.isStatic(field.getModifiers());
+
+            MethodHandle getter = null;
+            MethodHandle setter = null;
+            try {
+                field.setAccessible(true);
+                getter = LOOKUP.unreflectGetter(field).asType(isStatic
+                        ? MethodType.methodType(Object.class)
+                        : MethodType.methodType(Object.class, Object.class));
+                if (!Modifier.isFinal(field.getModifiers()))
+                    setter = LOOKUP.unreflectSetter(field).asType(isStatic
+                            ? MethodType.methodType(void.class, Object.class)
+                            : MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException | RuntimeException ignored) {
+                // Fall back to Field#get and Field#set
+            }
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        public Class<?> getType() {
+            return field.getType();
+        }
+
+        /**
+         * Gets the value of the field.
+         * <br>
+         *
+         * @param target The object to get the field from, ignored for static fields.
+         * @return The value.
+         * @throws Exception If the field can't be accessed.
+         */
+        public @Nullable Object get(@Nullable Object target) throws Exception {
+            if (getter == null) return field.get(target);
+
+            try {
+                if (isStatic) return (Object) getter.invokeExact();
+                return (Object) getter.invokeExact(target);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+
+        /**
+         * Sets the value of the field.
+         * <br>
+         *
+         * @param target The object to set the field on, ignored for static fields.
+         * @param value  The value.
+         * @throws Exception If the field can't be accessed.
+         */
+        public void set(@Nullable Object target, @Nullable Object value) throws Exception {
+            if (setter == null) {
+                field.set(target, value);
+                return;
+            }
+
+            try {
+                if (isStatic) setter.invokeExact(value);
+                else setter.invokeExact(target, value);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an input can't be lexed, parsed or evaluated by the AST engine.
+ */
+@Getter
+public class KamiAstException extends RuntimeException {
+    /**
+     * The position in the input, or -1 if not known.
+     */
+    private final int position;
+
+    public KamiAstException(String message, int position) {
+        super(position >= 0 ? message + " (at " + position + ")" : message);
+        this.position = position;
+    }
+
+    public KamiAstException(String message) {
+        this(message, -1);
+    }
+
+    public KamiAstException(String message, Throwable cause) {
+        super(message, cause);
+        this.position = -1;
+    }
+}
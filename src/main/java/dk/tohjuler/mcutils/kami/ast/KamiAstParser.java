@@ -0,0 +1,329 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import dk.tohjuler.mcutils.kami.KamiExp;
+import dk.tohjuler.mcutils.kami.ast.KamiToken.Type;
+import dk.tohjuler.mcutils.kami.expressions.CheckExp;
+import dk.tohjuler.mcutils.kami.expressions.ToStringExp;
+import dk.tohjuler.mcutils.kami.expressions.debugexps.CallFunctionExp;
+import dk.tohjuler.mcutils.kami.expressions.debugexps.CallMethodExp;
+import dk.tohjuler.mcutils.kami.expressions.debugexps.CallMethodFromRefExp;
+import dk.tohjuler.mcutils.kami.expressions.debugexps.SetExp;
+import dk.tohjuler.mcutils.kami.expressions.math.AndOrExp;
+import dk.tohjuler.mcutils.kami.handlers.TypeHandler;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Parses tokens from {@link KamiLexer} into a {@link KamiNode} tree.
+ * <br>
+ * Grammar, from lowest to highest precedence:
+ * <pre>
+ * expression := or ( '=' or )?
+ * or         := and ( '||' and )*
+ * and        := comparison ( '&amp;&amp;' comparison )*
+ * comparison := unary ( ( '==' | '!=' | '&lt;' | '&gt;' | '&lt;=' | '&gt;=' ) unary )?
+ * unary      := '!' unary | postfix
+ * postfix    := primary ( '.' name ( '(' args ')' )? )*
+ * primary    := number | string | list | #var | _var | obj ref | name | call | java path | '(' expression ')'
+ * </pre>
+ * Only the syntax for the registered expressions is allowed, see {@link Features}.
+ */
+public class KamiAstParser {
+    private final List<KamiToken> tokens;
+    private final TypeHandler typeHandler;
+    private final Features features;
+    private int index = 0;
+
+    public KamiAstParser(List<KamiToken> tokens, TypeHandler typeHandler, Features features) {
+        this.tokens = tokens;
+        this.typeHandler = typeHandler;
+        this.features = features;
+    }
+
+    /**
+     * Lexes and parses an input.
+     * <br>
+     *
+     * @param input       The input.
+     * @param typeHandler The type handler used for literals.
+     * @param features    The allowed syntax.
+     * @return The root node.
+     * @throws KamiAstException If the input isn't a valid expression.
+     */
+    public static KamiNode parse(String input, TypeHandler typeHandler, Features features) {
+        return new KamiAstParser(new KamiLexer(input).tokenize(), typeHandler, features).parse();
+    }
+
+    /**
+     * Parses all tokens.
+     * <br>
+     *
+     * @return The root node.
+     * @throws KamiAstException If the tokens aren't a valid expression.
+     */
+    public KamiNode parse() {
+        KamiNode node = expression();
+        if (!peek().is(Type.EOF)) throw unexpected();
+        return node;
+    }
+
+    private KamiNode expression() {
+        KamiNode node = or();
+        if (!peek().is(Type.ASSIGN)) return node;
+
+        KamiToken assign = next();
+        require(features.isSet(), assign);
+        if (!(node instanceof KamiNode.GlobalVar || node instanceof KamiNode.Name
+                || node instanceof KamiNode.StaticField || node instanceof KamiNode.FieldAccess))
+            throw new KamiAstException("Invalid assignment target", assign.getPosition());
+        return new KamiNode.Assign(node, or());
+    }
+
+    private KamiNode or() {
+        KamiNode node = and();
+        while (peek().is(Type.OR)) {
+            require(features.isLogic(), next());
+            node = new KamiNode.Logical(false, node, and());
+        }
+        return node;
+    }
+
+    private KamiNode and() {
+        KamiNode node = comparison();
+        while (peek().is(Type.AND)) {
+            require(features.isLogic(), next());
+            node = new KamiNode.Logical(true, node, comparison());
+        }
+        return node;
+    }
+
+    private KamiNode comparison() {
+        KamiNode node = unary();
+        Type type = peek().getType();
+        if (type == Type.EQ || type == Type.NEQ || type == Type.LT || type == Type.GT || type == Type.LTE || type == Type.GTE) {
+            require(features.isCompare(), next());
+            return new KamiNode.Compare(type, node, unary());
+        }
+        return node;
+    }
+
+    private KamiNode unary() {
+        if (peek().is(Type.NOT)) {
+            require(features.isLogic(), next());
+            return new KamiNode.Not(unary());
+        }
+        return postfix();
+    }
+
+    private KamiNode postfix() {
+        KamiNode node = primary();
+        while (peek().is(Type.DOT)) {
+            KamiToken dot = next();
+            String name = expect(Type.IDENT).getText();
+            if (peek().is(Type.LPAREN)) {
+                require(features.isCalls(), dot);
+                node = new KamiNode.MethodCall(node, name, args());
+            } else {
+                require(features.isCalls() || features.isSet(), dot);
+                node = new KamiNode.FieldAccess(node, name);
+            }
+        }
+        return node;
+    }
+
+    private KamiNode primary() {
+        KamiToken token = next();
+        switch (token.getType()) {
+            case NUMBER:
+            case STRING:
+                return literal(token);
+            case GLOBAL_VAR:
+                return new KamiNode.GlobalVar(token.getText());
+            case OBJ_REF:
+                return new KamiNode.ObjRef(token.getText());
+            case LBRACKET:
+                return new KamiNode.ListNode(list(Type.RBRACKET));
+            case LPAREN: {
+                KamiNode node = expression();
+                expect(Type.RPAREN);
+                return node;
+            }
+            case IDENT:
+                return identifier(token);
+            default:
+                throw new KamiAstException("Unexpected token: " + token.getType(), token.getPosition());
+        }
+    }
+
+    private KamiNode identifier(KamiToken token) {
+        String name = token.getText();
+        if (name.equals("true") || name.equals("false")) return literal(token);
+
+        if (peek().is(Type.LPAREN)) {
+            require(features.isFunctions(), token);
+            return new KamiNode.FunctionCall(name, args());
+        }
+
+        if (!peek().is(Type.DOT) || !peek(1).is(Type.IDENT)) {
+            if (name.length() > 1 && name.charAt(0) == '_') return new KamiNode.LocalVar(name.substring(1));
+            return new KamiNode.Name(name);
+        }
+
+        // Java path, the last part is the method or field name.
+        StringBuilder path = new StringBuilder(name);
+        String member;
+        while (true) {
+            next();
+            member = next().getText();
+            if (peek().is(Type.LPAREN) || !peek().is(Type.DOT) || !peek(1).is(Type.IDENT)) break;
+            path.append('.').append(member);
+        }
+
+        if (peek().is(Type.LPAREN)) {
+            require(features.isCalls(), token);
+            return new KamiNode.StaticCall(path.toString(), member, args());
+        }
+        require(features.isCalls() || features.isSet(), token);
+        return new KamiNode.StaticField(path.toString(), member);
+    }
+
+    private List<KamiNode> args() {
+        expect(Type.LPAREN);
+        return list(Type.RPAREN);
+    }
+
+    private List<KamiNode> list(Type end) {
+        List<KamiNode> nodes = new ArrayList<>();
+        if (peek().is(end)) {
+            next();
+            return nodes;
+        }
+
+        nodes.add(expression());
+        while (peek().is(Type.COMMA)) {
+            next();
+            nodes.add(expression());
+        }
+        expect(end);
+        return nodes;
+    }
+
+    private KamiNode literal(KamiToken token) {
+        Object value;
+        try {
+            value = typeHandler.deserialize(token.getText());
+        } catch (RuntimeException e) {
+            throw new KamiAstException("Invalid literal: " + token.getText(), token.getPosition());
+        }
+        if (value == null) throw new KamiAstException("Unknown literal: " + token.getText(), token.getPosition());
+        return new KamiNode.Literal(value);
+    }
+
+    // Tokens
+    // ---
+
+    private KamiToken peek() {
+        return peek(0);
+    }
+
+    private KamiToken peek(int offset) {
+        return tokens.get(Math.min(index + offset, tokens.size() - 1));
+    }
+
+    private KamiToken next() {
+        KamiToken token = peek();
+        if (index < tokens.size() - 1) index++;
+        return token;
+    }
+
+    private KamiToken expect(Type type) {
+        KamiToken token = next();
+        if (!token.is(type))
+            throw new KamiAstException("Expected " + type + " but got " + token.getType(), token.getPosition());
+        return token;
+    }
+
+    private KamiAstException unexpected() {
+        return new KamiAstException("Unexpected token: " + peek().getType(), peek().getPosition());
+    }
+
+    private static void require(boolean feature, KamiToken token) {
+        if (!feature) throw new KamiAstException("Syntax not enabled: " + token.getText(), token.getPosition());
+    }
+
+    /**
+     * The syntax allowed by the parser.
+     * Each feature is enabled by the expression that handles the same syntax in the expression engine,
+     * so the AST engine never allows more than the parser is built with.
+     * Inputs matched by any other expression are left to the expressions, see {@link #matchesCustom(String)}.
+     */
+    @Getter
+    public static class Features {
+        /// Java method calls and field reads, enabled by {@link CallMethodExp} or {@link CallMethodFromRefExp}.
+        private final boolean calls;
+        /// Kami function calls, enabled by {@link CallFunctionExp}.
+        private final boolean functions;
+        /// Assignments, enabled by {@link SetExp}.
+        private final boolean set;
+        /// Comparisons, enabled by {@link CheckExp}.
+        private final boolean compare;
+        /// &&, || and !, enabled by {@link AndOrExp}.
+        private final boolean logic;
+        /// The patterns of the expressions that aren't handled by the AST engines.
+        @Getter(AccessLevel.NONE)
+        private final Pattern[] custom;
+
+        public Features(boolean calls, boolean functions, boolean set, boolean compare, boolean logic) {
+            this(calls, functions, set, compare, logic, new Pattern[0]);
+        }
+
+        public Features(boolean calls, boolean functions, boolean set, boolean compare, boolean logic, Pattern[] custom) {
+            this.calls = calls;
+            this.functions = functions;
+            this.set = set;
+            this.compare = compare;
+            this.logic = logic;
+            this.custom = custom;
+        }
+
+        /**
+         * Checks if an expression that isn't handled by the AST engines matches the input.
+         * Those inputs must be run by the expressions, so the custom expression is executed.
+         * <br>
+         *
+         * @param input The input.
+         * @return If a custom expression matches the input.
+         */
+        public boolean matchesCustom(String input) {
+            for (Pattern pattern : custom)
+                if (pattern.matcher(input).find()) return true;
+            return false;
+        }
+
+        /**
+         * Creates the features from the expressions of a parser.
+         * <br>
+         *
+         * @param expressions The expressions.
+         * @return The features.
+         */
+        public static Features from(Iterable<KamiExp> expressions) {
+            boolean calls = false, functions = false, set = false, compare = false, logic = false;
+            List<Pattern> custom = new ArrayList<>();
+            for (KamiExp exp : expressions) {
+                if (exp instanceof CallMethodExp || exp instanceof CallMethodFromRefExp) calls = true;
+                else if (exp instanceof CallFunctionExp) functions = true;
+                else if (exp instanceof SetExp) set = true;
+                else if (exp instanceof CheckExp) compare = true;
+                else if (exp instanceof AndOrExp) logic = true;
+                // Matches everything, and only converts values to strings
+                else if (!(exp instanceof ToStringExp)) custom.add(exp.getPattern());
+            }
+            return new Features(calls, functions, set, compare, logic, custom.toArray(new Pattern[0]));
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import dk.tohjuler.mcutils.kami.KamiState;
+import dk.tohjuler.mcutils.kami.KamiUtils;
+import dk.tohjuler.mcutils.kami.ReflectionCache;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a Kami tree into a {@link KamiFunction}.
+ * <br>
+ * Each node is turned into a closure specialized for the node,
+ * so no node type or operator is checked at runtime.
+ * Java classes, static methods and static fields are resolved once at compile time,
+ * and called through the method handles of {@link ReflectionCache}.
+ * Method calls on objects use an inline cache of the last receiver class.
+ * <br>
+ * Nodes that can't be resolved at compile time are evaluated as a tree.
+ */
+public class KamiCompiler {
+    private KamiCompiler() {
+    }
+
+    /**
+     * Compiles a tree.
+     * <br>
+     *
+     * @param node The root of the tree.
+     * @return The compiled function.
+     */
+    public static KamiFunction compile(KamiNode node) {
+        if (node instanceof KamiNode.Literal) {
+            Object value = ((KamiNode.Literal) node).getValue();
+            return state -> value;
+        }
+        if (node instanceof KamiNode.GlobalVar) {
+            String key = "var:" + ((KamiNode.GlobalVar) node).getName();
+            return state -> state.getGlobalStorage().get(key).getPlane();
+        }
+        if (node instanceof KamiNode.LocalVar) {
+            String key = ((KamiNode.LocalVar) node).getName();
+            return state -> state.getLocalStorage().get(key).getPlane();
+        }
+        if (node instanceof KamiNode.Name) {
+            String name = ((KamiNode.Name) node).getName();
+            String key = "var:" + name;
+            return state -> {
+                Object value = state.getGlobalStorage().get(key).getPlane();
+                return value != null ? value : name;
+            };
+        }
+        if (node instanceof KamiNode.ListNode) {
+            KamiFunction[] elements = compileAll(((KamiNode.ListNode) node).getElements());
+            return state -> {
+                List<Object> list = new ArrayList<>(elements.length);
+                for (KamiFunction element : elements)
+                    list.add(element.apply(state));
+                return list;
+            };
+        }
+        if (node instanceof KamiNode.Compare) return compileCompare((KamiNode.Compare) node);
+        if (node instanceof KamiNode.Logical) {
+            KamiNode.Logical logical = (KamiNode.Logical) node;
+            KamiFunction left = compile(logical.getLeft());
+            KamiFunction right = compile(logical.getRight());
+            if (logical.isAnd())
+                return state -> KamiNode.asBoolean(left.apply(state)) && KamiNode.asBoolean(right.apply(state));
+            return state -> KamiNode.asBoolean(left.apply(state)) || KamiNode.asBoolean(right.apply(state));
+        }
+        if (node instanceof KamiNode.Not) {
+            KamiFunction value = compile(((KamiNode.Not) node).getValue());
+            return state -> !KamiNode.asBoolean(value.apply(state));
+        }
+        if (node instanceof KamiNode.StaticCall) {
+            KamiFunction compiled = compileStaticCall((KamiNode.StaticCall) node);
+            if (compiled != null) return compiled;
+        }
+        if (node instanceof KamiNode.StaticField) {
+            KamiFunction compiled = compileStaticField((KamiNode.StaticField) node);
+            if (compiled != null) return compiled;
+        }
+        if (node instanceof KamiNode.MethodCall) return compileMethodCall((KamiNode.MethodCall) node);
+
+        return node::evaluate;
+    }
+
+    private static KamiFunction[] compileAll(List<KamiNode> nodes) {
+        KamiFunction[] functions = new KamiFunction[nodes.size()];
+        for (int i = 0; i < functions.length; i++)
+            functions[i] = compile(nodes.get(i));
+        return functions;
+    }
+
+    private static Object[] applyAll(KamiFunction[] functions, KamiState state) {
+        Object[] values = new Object[functions.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = functions[i].apply(state);
+        return values;
+    }
+
+    // Operators
+    // ---
+
+    private static KamiFunction compileCompare(KamiNode.Compare compare) {
+        KamiFunction left = compile(compare.getLeft());
+        KamiFunction right = compile(compare.getRight());
+        switch (compare.getOperator()) {
+            case EQ:
+                return state -> {
+                    Object a = left.apply(state);
+                    Object b = right.apply(state);
+                    return a == null ? b == null : a.equals(b);
+                };
+            case NEQ:
+                return state -> {
+                    Object a = left.apply(state);
+                    Object b = right.apply(state);
+                    return a == null ? b != null : !a.equals(b);
+                };
+            case LT:
+                return state -> number(left.apply(state), "<") < number(right.apply(state), "<");
+            case GT:
+                return state -> number(left.apply(state), ">") > number(right.apply(state), ">");
+            case LTE:
+                return state -> number(left.apply(state), "<=") <= number(right.apply(state), "<=");
+            case GTE:
+                return state -> number(left.apply(state), ">=") >= number(right.apply(state), ">=");
+            default:
+                return compare::evaluate;
+        }
+    }
+
+    private static double number(@Nullable Object value, String operator) {
+        if (!(value instanceof Number))
+            throw new KamiAstException("Both values must be numbers for operator: " + operator);
+        return ((Number) value).doubleValue();
+    }
+
+    // Java access
+    // ---
+
+    private static @Nullable KamiFunction compileStaticCall(KamiNode.StaticCall call) {
+        Class<?> clazz = ReflectionCache.findClass(call.getClassPath());
+        if (clazz == null) return null;
+
+        // Only bind at compile time, if there is no overload to pick from at runtime.
+        ReflectionCache.MethodAccessor method = null;
+        for (ReflectionCache.MethodAccessor m : ReflectionCache.getMethods(clazz, call.getMethod(), call.getArgs().size())) {
+            if (!m.isStatic()) continue;
+            if (method != null) return null;
+            method = m;
+        }
+        if (method == null) return null;
+
+        // Literal arguments are known now, so a call that can't apply is left to the tree.
+        Object[] literals = literals(call.getArgs());
+        if (literals != null && !KamiUtils.isApplicable(method.getParameterTypes(), literals)) return null;
+
+        KamiFunction[] args = compileAll(call.getArgs());
+        ReflectionCache.MethodAccessor bound = method;
+        return state -> {
+            Object[] values = applyAll(args, state);
+            if (KamiUtils.isApplicable(bound.getParameterTypes(), values))
+                return KamiNode.invoke(bound, null, values);
+
+            // Resolved like the tree, without evaluating the arguments again
+            ReflectionCache.MethodAccessor m = ReflectionCache.findMethod(clazz, call.getMethod(), values, true);
+            if (m == null) throw new KamiAstException("Method not found: " + call.getMethod() + " in " + call.getClassPath());
+            return KamiNode.invoke(m, null, values);
+        };
+    }
+
+    /**
+     * Gets the values of the nodes, if they are all literals.
+     *
+     * @return The values, or null if a node is not a literal.
+     */
+    private static @Nullable Object[] literals(List<KamiNode> nodes) {
+        Object[] values = new Object[nodes.size()];
+        for (int i = 0; i < values.length; i++) {
+            if (!(nodes.get(i) instanceof KamiNode.Literal)) return null;
+            values[i] = ((KamiNode.Literal) nodes.get(i)).getValue();
+        }
+        return values;
+    }
+
+    private static @Nullable KamiFunction compileStaticField(KamiNode.StaticField node) {
+        Class<?> clazz = ReflectionCache.findClass(node.getClassPath());
+        if (clazz == null) return null;
+        ReflectionCache.FieldAccessor field = ReflectionCache.getField(clazz, node.getField());
+        if (field == null || !field.isStatic()) return null;
+
+        return state -> {
+            try {
+                return field.get(null);
+            } catch (Exception e) {
+                throw new KamiAstException("Failed to get field: " + node.getField(), e);
+            }
+        };
+    }
+
+    private static KamiFunction compileMethodCall(KamiNode.MethodCall call) {
+        KamiFunction target = compile(call.getTarget());
+        KamiFunction[] args = compileAll(call.getArgs());
+        InlineCache cache = new InlineCache(call.getMethod());
+
+        return state -> {
+            Object obj = target.apply(state);
+            if (obj == null) throw new KamiAstException("Can't call " + cache.name + " on null");
+            return cache.invoke(obj, applyAll(args, state));
+        };
+    }
+
+    /**
+     * Caches the resolved method for the last receiver class of a method call.
+     */
+    private static class InlineCache {
+        private final String name;
+        private volatile @Nullable Entry entry;
+
+        InlineCache(String name) {
+            this.name = name;
+        }
+
+        @Nullable Object invoke(Object obj, Object[] args) {
+            Entry e = entry;
+            if (e == null || e.receiver != obj.getClass()
+                    || (e.method != null && !KamiUtils.isApplicable(e.method.getParameterTypes(), args)))
+                entry = e = resolve(obj.getClass(), args);
+
+            if (e.method == null) {
+                Object[] input = new Object[args.length + 1];
+                input[0] = obj;
+                System.arraycopy(args, 0, input, 1, args.length);
+                return KamiUtils.runMethodOverride(obj.getClass(), name, input);
+            }
+
+            return KamiNode.invoke(e.method, obj, args);
+        }
+
+        private Entry resolve(Class<?> receiver, Object[] args) {
+            if (KamiUtils.hasMethodOverridden(receiver, name)) return new Entry(receiver, null);
+
+            ReflectionCache.MethodAccessor method = ReflectionCache.findMethod(receiver, name, args, false);
+            if (method == null) throw new KamiAstException("Method not found: " + name + " in " + receiver.getName());
+            return new Entry(receiver, method);
+        }
+    }
+
+    private static class Entry {
+        private final Class<?> receiver;
+        /// Null for method overrides.
+        private final @Nullable ReflectionCache.MethodAccessor method;
+
+        Entry(Class<?> receiver, @Nullable ReflectionCache.MethodAccessor method) {
+            this.receiver = receiver;
+            this.method = method;
+        }
+    }
+}
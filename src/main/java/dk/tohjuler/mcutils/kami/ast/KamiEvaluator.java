@@ -0,0 +1,119 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import dk.tohjuler.mcutils.LruCache;
+import dk.tohjuler.mcutils.kami.KamiParser;
+import dk.tohjuler.mcutils.kami.KamiState;
+import dk.tohjuler.mcutils.kami.enums.KamiEngine;
+import dk.tohjuler.mcutils.kami.errors.KamiPanicError;
+import dk.tohjuler.mcutils.kami.storage.TypeItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Evaluator for the AST engines.
+ * <br>
+ * Inputs are parsed into a tree, which is either walked by {@link KamiNode#evaluate(KamiState)}
+ * or compiled by {@link KamiCompiler}, depending on the engine.
+ * The result is cached per input,
+ * including inputs that couldn't be parsed, so they aren't lexed again before falling back.
+ * <br>
+ * Inputs are also left to the expressions if they are a single value, as the output of a value is decided by the expressions,
+ * or if a custom expression matches them, so the output is the same as with {@link KamiEngine#EXPRESSIONS}.
+ */
+public class KamiEvaluator {
+    private final KamiParser parser;
+    private final LruCache<String, Optional<KamiFunction>> functions;
+
+    public KamiEvaluator(KamiParser parser, int cacheSize) {
+        this.parser = parser;
+        this.functions = new LruCache<>(cacheSize);
+    }
+
+    /**
+     * Parses the input into a tree.
+     * The tree is not cached.
+     * <br>
+     *
+     * @param input The input.
+     * @return The tree, or null if the input isn't a valid expression for the parser.
+     */
+    public @Nullable KamiNode parseTree(String input) {
+        try {
+            return KamiAstParser.parse(input, parser.getTypeHandler(), parser.getFeatures());
+        } catch (KamiAstException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the function for the input, from the cache if present.
+     * With the {@link KamiEngine#CODEGEN} engine the tree is compiled, else it is walked.
+     * <br>
+     *
+     * @param input The input.
+     * @return The function, or null if the input should be run by the expressions.
+     */
+    public @Nullable KamiFunction getFunction(String input) {
+        return functions.computeIfAbsent(input, str -> {
+            if (parser.getFeatures().matchesCustom(str)) return Optional.empty();
+
+            KamiNode tree = parseTree(str);
+            if (tree == null || isValue(tree)) return Optional.empty();
+
+            KamiFunction function = parser.getEngine() == KamiEngine.CODEGEN
+                    ? KamiCompiler.compile(tree)
+                    : tree::evaluate;
+            return Optional.of(function);
+        }).orElse(null);
+    }
+
+    private static boolean isValue(KamiNode node) {
+        return node instanceof KamiNode.Literal || node instanceof KamiNode.ListNode
+                || node instanceof KamiNode.GlobalVar || node instanceof KamiNode.LocalVar
+                || node instanceof KamiNode.Name || node instanceof KamiNode.ObjRef;
+    }
+
+    /**
+     * Clears the cached functions.
+     */
+    public void clearCache() {
+        functions.clear();
+    }
+
+    /**
+     * Evaluates a function, and converts the value to the output string.
+     * Print types are converted with toString, other objects with the type handler.
+     * <br>
+     *
+     * @param function The function.
+     * @param state    The state to evaluate in.
+     * @return The output, or an empty item if the evaluation failed.
+     */
+    public @NotNull TypeItem<String> evaluate(KamiFunction function, KamiState state) {
+        Object value;
+        try {
+            value = function.apply(state);
+        } catch (RuntimeException e) {
+            state.writeDebug("Panic error is written to err, stopping evaluation.");
+            parser.getOutputHandler().err(new KamiPanicError(e.getMessage() != null ? e.getMessage() : "Evaluation failed", e), state.getPlayer());
+            return new TypeItem<>(null);
+        }
+
+        return new TypeItem<>(render(value));
+    }
+
+    /**
+     * Converts a value to the output string.
+     * <br>
+     *
+     * @param value The value.
+     * @return The string.
+     */
+    public String render(@Nullable Object value) {
+        if (value == null) return "";
+        if (parser.getPrintTypes().contains(value.getClass())) return value.toString();
+        return parser.getTypeHandler().serialize(value);
+    }
+}
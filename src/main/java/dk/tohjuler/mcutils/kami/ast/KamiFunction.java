@@ -0,0 +1,23 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import dk.tohjuler.mcutils.kami.KamiState;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A compiled Kami expression.
+ * <br>
+ * Created by {@link KamiCompiler}, or from a tree with {@code node::evaluate}.
+ */
+@FunctionalInterface
+public interface KamiFunction {
+
+    /**
+     * Runs the expression.
+     * <br>
+     *
+     * @param state The state to run in.
+     * @return The value of the expression.
+     * @throws KamiAstException If the expression fails.
+     */
+    @Nullable Object apply(KamiState state);
+}
@@ -0,0 +1,149 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import dk.tohjuler.mcutils.kami.ast.KamiToken.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a Kami input into tokens in a single pass.
+ */
+public class KamiLexer {
+    private final String input;
+    private int pos = 0;
+
+    public KamiLexer(String input) {
+        this.input = input;
+    }
+
+    /**
+     * Lexes the whole input.
+     * The last token is always {@link Type#EOF}.
+     * <br>
+     *
+     * @return The tokens.
+     * @throws KamiAstException If the input contains an unknown character or an unterminated string.
+     */
+    public List<KamiToken> tokenize() {
+        List<KamiToken> tokens = new ArrayList<>();
+        int len = input.length();
+
+        while (pos < len) {
+            char c = input.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+
+            int start = pos;
+            if (input.startsWith("obj:{", pos)) {
+                int end = input.indexOf('}', pos);
+                if (end == -1) throw new KamiAstException("Unterminated object reference", start);
+                pos = end + 1;
+                tokens.add(new KamiToken(Type.OBJ_REF, input.substring(start, pos), start));
+            } else if (isIdentStart(c)) {
+                tokens.add(new KamiToken(Type.IDENT, readIdent(), start));
+            } else if (isDigit(c) || (c == '-' && pos + 1 < len && isDigit(input.charAt(pos + 1)))) {
+                tokens.add(new KamiToken(Type.NUMBER, readNumber(), start));
+            } else if (c == '"') {
+                int end = input.indexOf('"', pos + 1);
+                if (end == -1) throw new KamiAstException("Unterminated string", start);
+                pos = end + 1;
+                tokens.add(new KamiToken(Type.STRING, input.substring(start, pos), start));
+            } else if (c == '#') {
+                pos++;
+                if (pos >= len || !isIdentStart(input.charAt(pos)))
+                    throw new KamiAstException("Expected variable name after '#'", start);
+                tokens.add(new KamiToken(Type.GLOBAL_VAR, readIdent(), start));
+            } else {
+                tokens.add(readSymbol(c, start));
+            }
+        }
+
+        tokens.add(new KamiToken(Type.EOF, "", len));
+        return tokens;
+    }
+
+    private KamiToken readSymbol(char c, int start) {
+        char next = pos + 1 < input.length() ? input.charAt(pos + 1) : '\0';
+        Type type;
+        int length = 1;
+        switch (c) {
+            case '.':
+                type = Type.DOT;
+                break;
+            case ',':
+                type = Type.COMMA;
+                break;
+            case '(':
+                type = Type.LPAREN;
+                break;
+            case ')':
+                type = Type.RPAREN;
+                break;
+            case '[':
+                type = Type.LBRACKET;
+                break;
+            case ']':
+                type = Type.RBRACKET;
+                break;
+            case '=':
+                type = next == '=' ? Type.EQ : Type.ASSIGN;
+                break;
+            case '!':
+                type = next == '=' ? Type.NEQ : Type.NOT;
+                break;
+            case '<':
+                type = next == '=' ? Type.LTE : Type.LT;
+                break;
+            case '>':
+                type = next == '=' ? Type.GTE : Type.GT;
+                break;
+            case '&':
+                if (next != '&') throw new KamiAstException("Unexpected character '&'", start);
+                type = Type.AND;
+                break;
+            case '|':
+                if (next != '|') throw new KamiAstException("Unexpected character '|'", start);
+                type = Type.OR;
+                break;
+            default:
+                throw new KamiAstException("Unexpected character '" + c + "'", start);
+        }
+        if (type == Type.EQ || type == Type.NEQ || type == Type.LTE || type == Type.GTE || type == Type.AND || type == Type.OR)
+            length = 2;
+
+        pos += length;
+        return new KamiToken(type, input.substring(start, pos), start);
+    }
+
+    private String readIdent() {
+        int start = pos;
+        while (pos < input.length() && isIdentPart(input.charAt(pos))) pos++;
+        return input.substring(start, pos);
+    }
+
+    private String readNumber() {
+        int start = pos;
+        if (input.charAt(pos) == '-') pos++;
+        while (pos < input.length() && isDigit(input.charAt(pos))) pos++;
+        // Only a fraction if a digit follows the dot, else it is a method call on the number.
+        if (pos + 1 < input.length() && input.charAt(pos) == '.' && isDigit(input.charAt(pos + 1))) {
+            pos++;
+            while (pos < input.length() && isDigit(input.charAt(pos))) pos++;
+        }
+        return input.substring(start, pos);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentPart(char c) {
+        return isIdentStart(c) || isDigit(c);
+    }
+}
@@ -0,0 +1,459 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import dk.tohjuler.mcutils.kami.KamiState;
+import dk.tohjuler.mcutils.kami.KamiUtils;
+import dk.tohjuler.mcutils.kami.ReflectionCache;
+import dk.tohjuler.mcutils.kami.handlers.defaults.FunctionHandler;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node in a Kami AST.
+ * <br>
+ * Nodes are immutable, so a tree can be cached and evaluated against multiple states.
+ */
+public abstract class KamiNode {
+
+    /**
+     * Evaluates the node.
+     * <br>
+     *
+     * @param state The state to evaluate in.
+     * @return The value of the node.
+     * @throws KamiAstException If the node can't be evaluated.
+     */
+    public abstract @Nullable Object evaluate(KamiState state);
+
+    /**
+     * Evaluates a list of nodes.
+     * <br>
+     *
+     * @param nodes The nodes to evaluate.
+     * @param state The state to evaluate in.
+     * @return The values of the nodes.
+     */
+    static Object[] evaluateAll(List<KamiNode> nodes, KamiState state) {
+        Object[] values = new Object[nodes.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = nodes.get(i).evaluate(state);
+        return values;
+    }
+
+    // Values
+    // ---
+
+    /**
+     * A literal value, deserialized by the type handler at parse time.
+     */
+    @Getter
+    public static class Literal extends KamiNode {
+        private final @Nullable Object value;
+
+        public Literal(@Nullable Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            return value;
+        }
+    }
+
+    /**
+     * A list of values, ex. [1, 2, 3]
+     */
+    @Getter
+    public static class ListNode extends KamiNode {
+        private final List<KamiNode> elements;
+
+        public ListNode(List<KamiNode> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public Object evaluate(KamiState state) {
+            List<Object> list = new ArrayList<>(elements.size());
+            for (KamiNode element : elements)
+                list.add(element.evaluate(state));
+            return list;
+        }
+    }
+
+    /**
+     * A global variable, ex. #test
+     */
+    @Getter
+    public static class GlobalVar extends KamiNode {
+        private final String name;
+
+        public GlobalVar(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            return state.getGlobalStorage().get("var:" + name).getPlane();
+        }
+    }
+
+    /**
+     * A local variable, ex. _input
+     */
+    @Getter
+    public static class LocalVar extends KamiNode {
+        private final String name;
+
+        public LocalVar(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            return state.getLocalStorage().get(name).getPlane();
+        }
+    }
+
+    /**
+     * A bare name.
+     * Evaluates to the global variable with the name if set, else the name itself.
+     */
+    @Getter
+    public static class Name extends KamiNode {
+        private final String name;
+
+        public Name(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object evaluate(KamiState state) {
+            Object value = state.getGlobalStorage().get("var:" + name).getPlane();
+            return value != null ? value : name;
+        }
+    }
+
+    /**
+     * An object reference, ex. obj:{...}
+     */
+    @Getter
+    public static class ObjRef extends KamiNode {
+        private final String ref;
+
+        public ObjRef(String ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public Object evaluate(KamiState state) {
+            Object obj = state.dejectObj(ref);
+            if (obj == null) throw new KamiAstException("Object not found: " + ref);
+            return obj;
+        }
+    }
+
+    // Calls
+    // ---
+
+    /**
+     * A call to a Kami function, ex. test()
+     */
+    @Getter
+    public static class FunctionCall extends KamiNode {
+        private final String name;
+        private final List<KamiNode> args;
+
+        public FunctionCall(String name, List<KamiNode> args) {
+            this.name = name;
+            this.args = args;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            FunctionHandler handler = state.getHandler(FunctionHandler.class);
+            if (handler == null) handler = new FunctionHandler(new ArrayList<>());
+
+            Object[] values = evaluateAll(args, state);
+            FunctionHandler.Func<?> func = handler.getFunction(name, values);
+            if (func != null) return func.run(state, values);
+
+            List<FunctionHandler.Func<?>> candidates = handler.getFunctions(name, values.length);
+            if (!candidates.isEmpty())
+                throw new KamiAstException("Invalid parameters for function: " + name + ". Expected: " + candidates.get(0).generatePattern());
+            throw new KamiAstException("Function not found: " + name);
+        }
+    }
+
+    /**
+     * A call to a static java method, ex. java.lang.System.currentTimeMillis()
+     */
+    @Getter
+    public static class StaticCall extends KamiNode {
+        private final String classPath;
+        private final String method;
+        private final List<KamiNode> args;
+
+        public StaticCall(String classPath, String method, List<KamiNode> args) {
+            this.classPath = classPath;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            Class<?> clazz = ReflectionCache.findClass(classPath);
+            if (clazz == null) throw new KamiAstException("Class not found: " + classPath);
+
+            Object[] values = evaluateAll(args, state);
+            ReflectionCache.MethodAccessor m = ReflectionCache.findMethod(clazz, method, values, true);
+            if (m == null) throw new KamiAstException("Method not found: " + method + " in " + classPath);
+            return invoke(m, null, values);
+        }
+    }
+
+    /**
+     * A call to a method on an object, ex. obj:{...}.get(0)
+     */
+    @Getter
+    public static class MethodCall extends KamiNode {
+        private final KamiNode target;
+        private final String method;
+        private final List<KamiNode> args;
+
+        public MethodCall(KamiNode target, String method, List<KamiNode> args) {
+            this.target = target;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            Object obj = target.evaluate(state);
+            if (obj == null) throw new KamiAstException("Can't call " + method + " on null");
+
+            Object[] values = evaluateAll(args, state);
+            if (KamiUtils.hasMethodOverridden(obj.getClass(), method)) {
+                Object[] input = new Object[values.length + 1];
+                input[0] = obj;
+                System.arraycopy(values, 0, input, 1, values.length);
+                return KamiUtils.runMethodOverride(obj.getClass(), method, input);
+            }
+
+            ReflectionCache.MethodAccessor m = ReflectionCache.findMethod(obj.getClass(), method, values, false);
+            if (m == null) throw new KamiAstException("Method not found: " + method + " in " + obj.getClass().getName());
+            return invoke(m, obj, values);
+        }
+    }
+
+    // Fields
+    // ---
+
+    /**
+     * A static field, ex. dk.tohjuler.something.Data.staticField
+     */
+    @Getter
+    public static class StaticField extends KamiNode {
+        private final String classPath;
+        private final String field;
+
+        public StaticField(String classPath, String field) {
+            this.classPath = classPath;
+            this.field = field;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            try {
+                return resolve().get(null);
+            } catch (Exception e) {
+                throw new KamiAstException("Failed to get field: " + field, e);
+            }
+        }
+
+        ReflectionCache.FieldAccessor resolve() {
+            Class<?> clazz = ReflectionCache.findClass(classPath);
+            if (clazz == null) throw new KamiAstException("Class not found: " + classPath);
+            ReflectionCache.FieldAccessor f = ReflectionCache.getField(clazz, field);
+            if (f == null) throw new KamiAstException("Field not found: " + field + " in " + classPath);
+            return f;
+        }
+    }
+
+    /**
+     * A field on an object, ex. obj:{...}.cooldown
+     */
+    @Getter
+    public static class FieldAccess extends KamiNode {
+        private final KamiNode target;
+        private final String field;
+
+        public FieldAccess(KamiNode target, String field) {
+            this.target = target;
+            this.field = field;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            Object obj = target.evaluate(state);
+            ReflectionCache.FieldAccessor f = resolve(obj);
+            try {
+                return f.get(obj);
+            } catch (Exception e) {
+                throw new KamiAstException("Failed to get field: " + field, e);
+            }
+        }
+
+        ReflectionCache.FieldAccessor resolve(@Nullable Object obj) {
+            if (obj == null) throw new KamiAstException("Can't get field " + field + " on null");
+            ReflectionCache.FieldAccessor f = ReflectionCache.getField(obj.getClass(), field);
+            if (f == null) throw new KamiAstException("Field not found: " + field + " in " + obj.getClass().getName());
+            return f;
+        }
+    }
+
+    // Operators
+    // ---
+
+    /**
+     * Checks 2 values with an operator, same rules as {@link dk.tohjuler.mcutils.kami.expressions.CheckExp}.
+     */
+    @Getter
+    public static class Compare extends KamiNode {
+        private final KamiToken.Type operator;
+        private final KamiNode left;
+        private final KamiNode right;
+
+        public Compare(KamiToken.Type operator, KamiNode left, KamiNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(KamiState state) {
+            return compare(operator, left.evaluate(state), right.evaluate(state));
+        }
+
+        static boolean compare(KamiToken.Type operator, @Nullable Object a, @Nullable Object b) {
+            if (operator == KamiToken.Type.EQ) return a == null ? b == null : a.equals(b);
+            if (operator == KamiToken.Type.NEQ) return a == null ? b != null : !a.equals(b);
+
+            if (!(a instanceof Number) || !(b instanceof Number))
+                throw new KamiAstException("Both values must be numbers for operator: " + operator);
+
+            double num1 = ((Number) a).doubleValue();
+            double num2 = ((Number) b).doubleValue();
+            switch (operator) {
+                case LT:
+                    return num1 < num2;
+                case GT:
+                    return num1 > num2;
+                case LTE:
+                    return num1 <= num2;
+                case GTE:
+                    return num1 >= num2;
+                default:
+                    throw new KamiAstException("Operator not supported: " + operator);
+            }
+        }
+    }
+
+    /**
+     * A short-circuit && or || operator.
+     */
+    @Getter
+    public static class Logical extends KamiNode {
+        private final boolean and;
+        private final KamiNode left;
+        private final KamiNode right;
+
+        public Logical(boolean and, KamiNode left, KamiNode right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object evaluate(KamiState state) {
+            boolean l = asBoolean(left.evaluate(state));
+            if (and ? !l : l) return l;
+            return asBoolean(right.evaluate(state));
+        }
+    }
+
+    /**
+     * Negates a boolean, ex. !true
+     */
+    @Getter
+    public static class Not extends KamiNode {
+        private final KamiNode value;
+
+        public Not(KamiNode value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(KamiState state) {
+            return !asBoolean(value.evaluate(state));
+        }
+    }
+
+    /**
+     * Sets a variable or field, same rules as {@link dk.tohjuler.mcutils.kami.expressions.debugexps.SetExp}.
+     * Evaluates to null.
+     */
+    @Getter
+    public static class Assign extends KamiNode {
+        private final KamiNode target;
+        private final KamiNode value;
+
+        public Assign(KamiNode target, KamiNode value) {
+            this.target = target;
+            this.value = value;
+        }
+
+        @Override
+        public @Nullable Object evaluate(KamiState state) {
+            Object val = value.evaluate(state);
+            if (val == null) return null;
+
+            if (target instanceof GlobalVar)
+                state.getGlobalStorage().set("var:" + ((GlobalVar) target).getName(), val);
+            else if (target instanceof Name)
+                state.getGlobalStorage().set("var:" + ((Name) target).getName(), val);
+            else if (target instanceof StaticField)
+                setField(((StaticField) target).resolve(), null, val);
+            else if (target instanceof FieldAccess) {
+                Object obj = ((FieldAccess) target).getTarget().evaluate(state);
+                setField(((FieldAccess) target).resolve(obj), obj, val);
+            } else
+                throw new KamiAstException("Invalid assignment target");
+            return null;
+        }
+
+        private static void setField(ReflectionCache.FieldAccessor field, @Nullable Object obj, Object value) {
+            if (!KamiUtils.wrap(field.getType()).isInstance(value))
+                throw new KamiAstException("The value type does not match the field type.");
+            try {
+                field.set(obj, value);
+            } catch (Exception e) {
+                throw new KamiAstException("Failed to set field: " + field.getField().getName(), e);
+            }
+        }
+    }
+
+    static @Nullable Object invoke(ReflectionCache.MethodAccessor method, @Nullable Object target, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (Exception e) {
+            throw new KamiAstException("Failed to execute method: " + method.getMethod().getName(), e);
+        }
+    }
+
+    static boolean asBoolean(@Nullable Object value) {
+        if (value instanceof Boolean) return (Boolean) value;
+        throw new KamiAstException("Expected a boolean, got: " + value);
+    }
+}
@@ -0,0 +1,55 @@
+package dk.tohjuler.mcutils.kami.ast;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A token produced by {@link KamiLexer}.
+ */
+@Getter
+@ToString
+public class KamiToken {
+    private final Type type;
+    private final String text;
+    /**
+     * The start index of the token in the input.
+     */
+    private final int position;
+
+    public KamiToken(Type type, String text, int position) {
+        this.type = type;
+        this.text = text;
+        this.position = position;
+    }
+
+    public boolean is(Type type) {
+        return this.type == type;
+    }
+
+    public enum Type {
+        IDENT,
+        NUMBER,
+        STRING,
+        /// A global variable, ex. #test
+        GLOBAL_VAR,
+        /// An object reference, ex. obj:{...}
+        OBJ_REF,
+        DOT,
+        COMMA,
+        LPAREN,
+        RPAREN,
+        LBRACKET,
+        RBRACKET,
+        EQ,
+        NEQ,
+        LT,
+        GT,
+        LTE,
+        GTE,
+        AND,
+        OR,
+        NOT,
+        ASSIGN,
+        EOF
+    }
+}
@@ -0,0 +1,15 @@
+package dk.tohjuler.mcutils.kami.enums;
+
+/**
+ * The engine used by a parser to evaluate inputs.
+ */
+public enum KamiEngine {
+    /// Matches the registered expressions one by one, rewriting the input string.
+    EXPRESSIONS,
+    /// Lexes the input into an AST, and evaluates the tree in a single pass.
+    /// Falls back to {@link #EXPRESSIONS} if the input isn't a valid expression.
+    AST,
+    /// Same as {@link #AST}, but the tree is compiled into a {@link dk.tohjuler.mcutils.kami.ast.KamiFunction}
+    /// with java methods bound through method handles. Best for inputs evaluated often.
+    CODEGEN
+}
@@ -37,7 +37,7 @@ public class ToStringExp extends KamiExp {
                 .forEach(ref -> {
                     Object obj = state.getObjFromRef(ref);
                     if (obj != null) {
-                        state.writeDebug("Found object: " + ref + " -> " + obj);
+                        state.writeDebug(() -> "Found object: " + ref + " -> " + obj);
                         replace.put(ref, state.getTypeHandler().serialize(obj));
                     }
                 });
@@ -47,7 +47,7 @@ public class ToStringExp extends KamiExp {
                 .forEach(var -> {
                     Object obj = state.getGlobalStorage().get("var:" + var.substring(1)).get();
                     if (obj != null) {
-                        state.writeDebug("Found global var: " + var + " -> " + obj);
+                        state.writeDebug(() -> "Found global var: " + var + " -> " + obj);
                         replace.put(var, obj.toString());
                     }
                 });
@@ -57,7 +57,7 @@ public class ToStringExp extends KamiExp {
                 .forEach(var -> {
                     Object obj = state.getLocalStorage().get(var.substring(1)).get();
                     if (obj != null) {
-                        state.writeDebug("Found local var: " + var + " -> " + obj);
+                        state.writeDebug(() -> "Found local var: " + var + " -> " + obj);
                         replace.put(var, obj.toString());
                     }
                 });
@@ -10,6 +10,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -40,33 +41,27 @@ public class CallFunctionExp extends KamiExp {
                 () -> new FunctionHandler(new ArrayList<>())
         );
 
-        @Nullable FunctionHandler.Func<?> func = null;
-
         Object[] paramsObjs = !params.isEmpty() ? Arrays.stream(params.split(",")).map(state::parseObject).toArray() : new Object[0];
 
-        for (FunctionHandler.Func<?> f : functionHandler.getFunctionByName(functionName)) {
-            if (f.getParameterTypes().size() != (params.isEmpty() ? 0 : params.split(",").length)) continue;
-
-            if (!f.matchParams(paramsObjs))
-                return result.error(
-                        new KamiError("Invalid parameters for function: " + functionName + ". Expected: " + f.generatePattern())
-                                .addDebugDetail(
-                                        "Param types",
-                                        Arrays.stream(paramsObjs)
-                                                .map(obj -> {
-                                                    if (obj == null) return "null";
-                                                    return obj.getClass().getSimpleName();
-                                                })
-                                                .collect(Collectors.joining(", "))
-                                )
-                );
+        @Nullable FunctionHandler.Func<?> func = functionHandler.getFunction(functionName, paramsObjs);
+        if (func == null) {
+            List<FunctionHandler.Func<?>> candidates = functionHandler.getFunctions(functionName, paramsObjs.length);
+            if (candidates.isEmpty()) return result.skip();
 
-            func = f;
-            break;
+            return result.error(
+                    new KamiError("Invalid parameters for function: " + functionName + ". Expected: " + candidates.get(0).generatePattern())
+                            .addDebugDetail(
+                                    "Param types",
+                                    Arrays.stream(paramsObjs)
+                                            .map(obj -> {
+                                                if (obj == null) return "null";
+                                                return obj.getClass().getSimpleName();
+                                            })
+                                            .collect(Collectors.joining(", "))
+                            )
+            );
         }
 
-        if (func == null) return result.skip();
-
         Object res;
         try {
             res = func.run(state, paramsObjs);
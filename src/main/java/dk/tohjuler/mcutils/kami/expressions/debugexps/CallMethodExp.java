@@ -3,10 +3,10 @@ package dk.tohjuler.mcutils.kami.expressions.debugexps;
 import dk.tohjuler.mcutils.kami.KamiExp;
 import dk.tohjuler.mcutils.kami.KamiResult;
 import dk.tohjuler.mcutils.kami.KamiState;
+import dk.tohjuler.mcutils.kami.ReflectionCache;
 import dk.tohjuler.mcutils.kami.errors.KamiError;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -33,27 +33,18 @@ public class CallMethodExp extends KamiExp {
         String params = matcher.group(4);
 
         // Get the class
-        Class<?> clazz;
-        try {
-            clazz = Class.forName(classPath);
-        } catch (ClassNotFoundException e) {
-            return result.error(new KamiError("Class not found: " + classPath, e));
-        }
+        Class<?> clazz = ReflectionCache.findClass(classPath);
+        if (clazz == null) return result.error(new KamiError("Class not found: " + classPath));
 
         // Get the method
-        Method method;
-        try {
-            method = clazz.getMethod(methodName);
-        } catch (NoSuchMethodException e) {
-            return result.error(new KamiError("Method not found: " + methodName, e));
-        }
+        Object[] args = !params.isEmpty() ? Arrays.stream(params.split(",")).map(state::parseObject).toArray() : new Object[0];
+        ReflectionCache.MethodAccessor method = ReflectionCache.findMethod(clazz, methodName, args, true);
+        if (method == null) return result.error(new KamiError("Method not found: " + methodName));
 
         // Execute the method
         Object res;
         try {
-
-            method.setAccessible(true);
-            res = method.invoke(null, !params.isEmpty() ? Arrays.stream(params.split(",")).map(state::parseObject).toArray() : new Object[0]);
+            res = method.invoke(null, args);
         } catch (Exception e) {
             return result.error(new KamiError("Failed to execute method: " + methodName, e));
         }
@@ -4,21 +4,20 @@ import dk.tohjuler.mcutils.kami.KamiExp;
 import dk.tohjuler.mcutils.kami.KamiResult;
 import dk.tohjuler.mcutils.kami.KamiState;
 import dk.tohjuler.mcutils.kami.KamiUtils;
+import dk.tohjuler.mcutils.kami.ReflectionCache;
 import dk.tohjuler.mcutils.kami.errors.KamiError;
 import org.jetbrains.annotations.NotNull;
 
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class CallMethodFromRefExp extends KamiExp {
     public CallMethodFromRefExp() {
         super(
-                Pattern.compile("(obj:\\{\\b[0-9a-fA-F]{8}\\b-[0-9a-fA-F]{4}\\b-[0-9a-fA-F]{4}\\b-[0-9a-fA-F]{4}\\b-[0-9a-fA-F]{12}\\b})\\.([a-z_][\\w$]*)\\(([^)]*)\\)"),
+                Pattern.compile("(" + KamiUtils.OBJECT_REF_PATTERN.pattern() + ")\\.([a-z_][\\w$]*)\\(([^)]*)\\)"),
                 "<obj ref>.<method name>([params])",
                 "Call method from obj ref",
                 "Calls a java method from an object reference with the given parameters.\n" +
@@ -37,16 +36,9 @@ public class CallMethodFromRefExp extends KamiExp {
         Object obj = state.getObjFromRef(objRef);
         if (obj == null) return result.error(new KamiError("Object not found: " + objRef));
 
-        // Get the method
-        Method method = KamiUtils.getMethod(
-                obj.getClass(),
-                methodName,
-                !params.isEmpty() ? Arrays.stream(params.split(",")).map(str -> {
-                    if (KamiUtils.OBJECT_REF_PATTERN.matcher(str).matches() && state.getObjFromRef(str) != null)
-                        return Objects.requireNonNull(state.getObjFromRef(str)).getClass();
-                    return state.getTypeHandler().detectClass(str);
-                }).toArray(Class[]::new) : new Class[0]
-        );
+        // Get the method, the same way as CallMethodExp
+        Object[] args = !params.isEmpty() ? Arrays.stream(params.split(",")).map(state::parseObject).toArray() : new Object[0];
+        ReflectionCache.MethodAccessor method = ReflectionCache.findMethod(obj.getClass(), methodName, args, false);
 
         if (method == null && !KamiUtils.hasMethodOverridden(obj.getClass(), methodName))
             return result.error(new KamiError("Method not found: " + methodName + " in " + obj.getClass().getName()));
@@ -55,13 +47,12 @@ public class CallMethodFromRefExp extends KamiExp {
         Object res;
         try {
             if (KamiUtils.hasMethodOverridden(obj.getClass(), methodName)) {
-                List<Object> paramsList = Arrays.stream(params.split(",")).map(state::parseObject).collect(Collectors.toList());
+                List<Object> paramsList = new ArrayList<>(Arrays.asList(args));
                 paramsList.add(0, obj);
                 res = KamiUtils.runMethodOverride(obj.getClass(), methodName, paramsList.toArray());
             } else {
                 assert method != null : "Method should not be null here";
-                if (!method.isAccessible()) method.setAccessible(true);
-                res = method.invoke(obj, Arrays.stream(params.split(",")).map(state::parseObject).toArray());
+                res = method.invoke(obj, args);
             }
         } catch (Exception e) {
             return result.error(new KamiError("Failed to execute method: " + methodName, e));
@@ -4,11 +4,11 @@ import dk.tohjuler.mcutils.kami.KamiExp;
 import dk.tohjuler.mcutils.kami.KamiResult;
 import dk.tohjuler.mcutils.kami.KamiState;
 import dk.tohjuler.mcutils.kami.KamiUtils;
+import dk.tohjuler.mcutils.kami.ReflectionCache;
 import dk.tohjuler.mcutils.kami.errors.KamiError;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,7 +39,7 @@ public class SetExp extends KamiExp {
         // The key can either be a variable, an object or a java path to a variable.
 
         boolean isVariable = key.startsWith("#");
-        boolean isObject = KamiUtils.OBJECT_REF_PATTERN.matcher(key).matches();
+        boolean isObject = KamiUtils.OBJECT_REF_PATTERN.matcher(key).lookingAt();
         String objRef = isObject ? key.substring(0, key.indexOf("}") + 1) : null;
         boolean isJavaPath = key.matches("^([a-zA-Z_][a-zA-Z0-9_]*)(\\.[a-zA-Z_][a-zA-Z0-9_]*)*$");
 
@@ -60,12 +60,9 @@ public class SetExp extends KamiExp {
             String varName = split[split.length - 1];
             String path = key.substring(0, key.length() - varName.length() - 1);
 
-            try {
-                Class<?> clazz = Class.forName(path); // Check for class
-                clazz.getDeclaredField(varName); // Check for field
-            } catch (ClassNotFoundException | NoSuchFieldException e) {
+            Class<?> clazz = ReflectionCache.findClass(path); // Check for class
+            if (clazz == null || ReflectionCache.getField(clazz, varName) == null) // Check for field
                 return result.error(new KamiError("The java path is invalid. Class or variable not found."));
-            }
         }
 
         Object evalValue = evalValue(state, value);
@@ -77,47 +74,38 @@ public class SetExp extends KamiExp {
             Object obj = state.getObjFromRef(objRef);
             if (obj == null) return result.error(new KamiError("The object reference is invalid. Object not found."));
 
-            try {
-                Field field = obj.getClass().getDeclaredField(key.replace(objRef, ""));
-                field.setAccessible(true);
-
-                if (field.getType().isAssignableFrom(evalValue.getClass()))
-                    return result.error(new KamiError("The value type does not match the field type."));
-
-                field.set(obj, evalValue);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                if (e instanceof NoSuchFieldException)
-                    return result.error(new KamiError("The field is invalid. Field not found."));
-                return result.error(new KamiError("Failed to set field: " + key, e));
-            }
+            ReflectionCache.FieldAccessor field = ReflectionCache.getField(obj.getClass(), key.replace(objRef, "").substring(1));
+            if (field == null) return result.error(new KamiError("The field is invalid. Field not found."));
+            return setField(result, field, obj, evalValue, key);
         } else {
             String[] split = key.split("\\.");
             String varName = split[split.length - 1];
             String path = key.substring(0, key.length() - varName.length() - 1);
 
-            try {
-                Class<?> clazz = Class.forName(path);
-                Field field = clazz.getDeclaredField(varName);
-                field.setAccessible(true);
-
-                if (field.getType().isAssignableFrom(evalValue.getClass()))
-                    return result.error(new KamiError("The value type does not match the field type."));
-
-                field.set(null, evalValue);
-            } catch (ClassNotFoundException | NoSuchFieldException | IllegalAccessException e) {
-                if (e instanceof ClassNotFoundException)
-                    return result.error(new KamiError("The java path is invalid. Class not found."));
-                if (e instanceof NoSuchFieldException)
-                    return result.error(new KamiError("The java path is invalid. Field not found."));
-                return result.error(new KamiError("Failed to set field: " + key, e));
-            }
+            Class<?> clazz = ReflectionCache.findClass(path);
+            if (clazz == null) return result.error(new KamiError("The java path is invalid. Class not found."));
+            ReflectionCache.FieldAccessor field = ReflectionCache.getField(clazz, varName);
+            if (field == null) return result.error(new KamiError("The java path is invalid. Field not found."));
+            return setField(result, field, null, evalValue, key);
         }
 
         return result.success();
     }
 
+    private KamiResult setField(KamiResult result, ReflectionCache.FieldAccessor field, @Nullable Object obj, Object value, String key) {
+        if (!KamiUtils.wrap(field.getType()).isInstance(value))
+            return result.error(new KamiError("The value type does not match the field type."));
+
+        try {
+            field.set(obj, value);
+        } catch (Exception e) {
+            return result.error(new KamiError("Failed to set field: " + key, e));
+        }
+        return result.success();
+    }
+
     private @Nullable Object evalValue(KamiState state, String value) {
-        if (KamiUtils.OBJECT_REF_PATTERN.matcher(value).matches()) return state.getObjFromRef(value);
+        if (KamiUtils.isObjectRef(value)) return state.getObjFromRef(value);
 
         return state.parseObject(value);
     }
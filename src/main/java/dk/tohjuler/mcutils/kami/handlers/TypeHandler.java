@@ -2,30 +2,118 @@ package dk.tohjuler.mcutils.kami.handlers;
 
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
  * Represents a type handler.
+ * <br>
+ * Strings are detected by the built-in adapters first, picked by the first char of the string,
+ * then by the custom adapters in the order they were registered.
  */
 public class TypeHandler {
-    private final Map<Class<?>, TypeAdapter<?>> typeAdapters = new HashMap<>();
+    private final Map<Class<?>, TypeAdapter<?>> typeAdapters = new LinkedHashMap<>();
+
+    /// Built-in adapters by the first char of the strings they accept.
+    private volatile Registered[][] firstCharIndex = new Registered[128][];
+    /// Custom adapters, in registration order.
+    private volatile Registered[] fallback = new Registered[0];
 
     public TypeHandler() {
-        registerTypeAdapter(String.class, Pattern.compile("^\"[^\"]*\"$"), str -> "\"" + str + "\"", str -> str.substring(1, str.length() - 1));
-        registerTypeAdapter(Integer.class, Pattern.compile("^-?\\d+$"), Object::toString, Integer::parseInt);
-        registerTypeAdapter(Double.class, Pattern.compile("^-?\\d+(\\.\\d+)$"), Object::toString, Double::parseDouble);
-        registerTypeAdapter(Boolean.class, Pattern.compile("^true|false$"), Object::toString, Boolean::parseBoolean);
-        registerTypeAdapter(List.class,
-                Pattern.compile("^\\[.*]$"),
-                list -> "[" + list.stream().map(Object::toString).collect(Collectors.joining(", ")) + "]",
-                str -> Arrays.stream(str.substring(1, str.length() - 1).split(",")).map(this::deserialize).collect(Collectors.toList())
-        );
+        registerTypeAdapter(String.class, new BuiltInAdapter<String>("\"") {
+            @Override
+            public boolean isType(String str) {
+                return str.length() >= 2 && str.charAt(0) == '"' && str.indexOf('"', 1) == str.length() - 1;
+            }
+
+            @Override
+            public String serialize(String obj) {
+                return "\"" + obj + "\"";
+            }
+
+            @Override
+            public String deserialize(String str) {
+                return str.substring(1, str.length() - 1);
+            }
+        });
+        registerTypeAdapter(Integer.class, new BuiltInAdapter<Integer>("-0123456789") {
+            @Override
+            public boolean isType(String str) {
+                int start = str.startsWith("-") ? 1 : 0;
+                int len = str.length() - start;
+                if (len == 0 || len > 10 || !isDigits(str, start, str.length())) return false;
+                // Only accept values that fit in an int
+                long value = Long.parseLong(str);
+                return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+            }
+
+            @Override
+            public String serialize(Integer obj) {
+                return obj.toString();
+            }
+
+            @Override
+            public Integer deserialize(String str) {
+                return Integer.parseInt(str);
+            }
+        });
+        registerTypeAdapter(Double.class, new BuiltInAdapter<Double>("-0123456789") {
+            @Override
+            public boolean isType(String str) {
+                int start = str.startsWith("-") ? 1 : 0;
+                int dot = str.indexOf('.');
+                return dot > start && dot < str.length() - 1
+                        && isDigits(str, start, dot)
+                        && isDigits(str, dot + 1, str.length());
+            }
+
+            @Override
+            public String serialize(Double obj) {
+                return obj.toString();
+            }
+
+            @Override
+            public Double deserialize(String str) {
+                return Double.parseDouble(str);
+            }
+        });
+        registerTypeAdapter(Boolean.class, new BuiltInAdapter<Boolean>("tf") {
+            @Override
+            public boolean isType(String str) {
+                return str.equals("true") || str.equals("false");
+            }
+
+            @Override
+            public String serialize(Boolean obj) {
+                return obj.toString();
+            }
+
+            @Override
+            public Boolean deserialize(String str) {
+                return Boolean.parseBoolean(str);
+            }
+        });
+        registerTypeAdapter(List.class, new BuiltInAdapter<List<?>>("[") {
+            @Override
+            public boolean isType(String str) {
+                return str.length() >= 2 && str.charAt(0) == '[' && str.charAt(str.length() - 1) == ']';
+            }
+
+            @Override
+            public String serialize(List<?> list) {
+                return "[" + list.stream().map(Object::toString).collect(Collectors.joining(", ")) + "]";
+            }
+
+            @Override
+            public List<?> deserialize(String str) {
+                List<Object> list = new ArrayList<>();
+                for (String element : splitList(str.substring(1, str.length() - 1)))
+                    list.add(TypeHandler.this.deserialize(element));
+                return list;
+            }
+        });
     }
 
     /**
@@ -36,7 +124,35 @@ public class TypeHandler {
      * @param adapter The type adapter to register.
      */
     public void registerTypeAdapter(Class<?> clazz, TypeAdapter<?> adapter) {
-        typeAdapters.put(clazz, adapter);
+        synchronized (typeAdapters) {
+            typeAdapters.put(clazz, adapter);
+            index();
+        }
+    }
+
+    private void index() {
+        List<List<Registered>> index = new ArrayList<>(Collections.nCopies(128, null));
+        List<Registered> custom = new ArrayList<>();
+
+        for (Map.Entry<Class<?>, TypeAdapter<?>> e : typeAdapters.entrySet()) {
+            Registered registered = new Registered(e.getKey(), e.getValue());
+            if (!(e.getValue() instanceof BuiltInAdapter)) {
+                custom.add(registered);
+                continue;
+            }
+
+            for (char c : ((BuiltInAdapter<?>) e.getValue()).firstChars.toCharArray()) {
+                if (index.get(c) == null) index.set(c, new ArrayList<>());
+                index.get(c).add(registered);
+            }
+        }
+
+        Registered[][] firstChars = new Registered[128][];
+        for (int i = 0; i < firstChars.length; i++)
+            if (index.get(i) != null) firstChars[i] = index.get(i).toArray(new Registered[0]);
+
+        this.firstCharIndex = firstChars;
+        this.fallback = custom.toArray(new Registered[0]);
     }
 
     /**
@@ -50,7 +166,7 @@ public class TypeHandler {
      * @param <T>          The type of the type adapter.
      */
     public <T> void registerTypeAdapter(Class<?> clazz, Pattern pattern, Function<T, String> serializer, Function<String, T> deserializer) {
-        typeAdapters.put(clazz, new TypeAdapter<T>() {
+        registerTypeAdapter(clazz, new TypeAdapter<T>() {
             @Override
             public boolean isType(String str) {
                 return pattern.matcher(str).matches();
@@ -136,9 +252,8 @@ public class TypeHandler {
      */
     public @Nullable Object deserialize(String str) {
         str = str.trim();
-        for (TypeAdapter<?> adapter : typeAdapters.values())
-            if (adapter.isType(str)) return adapter.deserialize(str);
-        return null;
+        Registered registered = find(str);
+        return registered != null ? registered.adapter.deserialize(str) : null;
     }
 
     /**
@@ -149,11 +264,86 @@ public class TypeHandler {
      * @return The detected class.
      */
     public Class<?> detectClass(String str) {
-        for (Map.Entry<Class<?>, TypeAdapter<?>> e : typeAdapters.entrySet())
-            if (e.getValue().isType(str)) return e.getKey();
+        Registered registered = find(str);
+        return registered != null ? registered.clazz : null;
+    }
+
+    private @Nullable Registered find(String str) {
+        if (!str.isEmpty() && str.charAt(0) < 128) {
+            Registered[] candidates = firstCharIndex[str.charAt(0)];
+            if (candidates != null)
+                for (Registered registered : candidates)
+                    if (registered.adapter.isType(str)) return registered;
+        }
+
+        for (Registered registered : fallback)
+            if (registered.adapter.isType(str)) return registered;
         return null;
     }
 
+    // Utils
+    // ---
+
+    /**
+     * Splits the elements of a list, at commas outside of quotes and nested lists.
+     * <br>
+     *
+     * @param str The content of the list, without the brackets.
+     * @return The elements, empty if the content is blank.
+     */
+    public static List<String> splitList(String str) {
+        List<String> elements = new ArrayList<>();
+        if (str.trim().isEmpty()) return elements;
+
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '"') quoted = !quoted;
+            else if (quoted) continue;
+            else if (c == '[') depth++;
+            else if (c == ']') depth--;
+            else if (c == ',' && depth == 0) {
+                elements.add(str.substring(start, i));
+                start = i + 1;
+            }
+        }
+        elements.add(str.substring(start));
+        return elements;
+    }
+
+    private static boolean isDigits(String str, int start, int end) {
+        if (start >= end) return false;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static class Registered {
+        private final Class<?> clazz;
+        @SuppressWarnings("rawtypes")
+        private final TypeAdapter adapter;
+
+        private Registered(Class<?> clazz, TypeAdapter<?> adapter) {
+            this.clazz = clazz;
+            this.adapter = adapter;
+        }
+    }
+
+    /**
+     * A built-in adapter, only checked for strings starting with one of its first chars.
+     */
+    private static abstract class BuiltInAdapter<T> implements TypeAdapter<T> {
+        private final String firstChars;
+
+        private BuiltInAdapter(String firstChars) {
+            this.firstChars = firstChars;
+        }
+    }
+
     public interface TypeAdapter<T> {
 
         /**
@@ -0,0 +1,54 @@
+package dk.tohjuler.mcutils.kami.handlers.defaults;
+
+import dk.tohjuler.mcutils.kami.handlers.IGlobalStorage;
+import dk.tohjuler.mcutils.kami.storage.TypeItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe memory global storage.
+ * <br>
+ * This storage is not persistent.
+ * <br>
+ * Same as {@link MemoryGlobalStorage}, but backed by a {@link ConcurrentHashMap},
+ * so it can be used by parsers evaluating on multiple threads.
+ */
+public class ConcurrentGlobalStorage implements IGlobalStorage {
+    private final Map<String, TypeItem<Object>> storage = new ConcurrentHashMap<>();
+
+    @Override
+    public void load(String id) {
+    }
+
+    @Override
+    public void save() {
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        storage.put(key, new TypeItem<>(value));
+    }
+
+    @Override
+    public @NotNull TypeItem<Object> get(String key) {
+        TypeItem<Object> item = storage.get(key);
+        return item != null ? item : new TypeItem<>(null);
+    }
+
+    @Override
+    public void remove(String key) {
+        storage.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        storage.clear();
+    }
+
+    @Override
+    public Map<String, TypeItem<Object>> getStorage() {
+        return storage;
+    }
+}
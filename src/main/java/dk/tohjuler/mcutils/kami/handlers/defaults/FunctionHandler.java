@@ -2,21 +2,36 @@ package dk.tohjuler.mcutils.kami.handlers.defaults;
 
 import dk.tohjuler.mcutils.kami.KamiState;
 import dk.tohjuler.mcutils.kami.handlers.IHandler;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.ParameterizedType;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
+/**
+ * Handler for Kami functions.
+ * <br>
+ * Functions are indexed by name and by name and arity,
+ * and the function picked for a signature of argument types is cached,
+ * so a lookup doesn't scan all the functions.
+ * Functions must be added with {@link #addFunction(Func)} to be indexed.
+ */
 @Getter
 public class FunctionHandler implements IHandler {
     private final List<Func<?>> functions;
 
+    @Getter(AccessLevel.NONE)
+    private final Map<String, List<Func<?>>> byName = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<Signature, List<Func<?>>> byArity = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final Map<Signature, Optional<Func<?>>> resolved = new ConcurrentHashMap<>();
+
     /**
      * Create a new function handler with the given functions.
      * <br>
@@ -25,6 +40,8 @@ public class FunctionHandler implements IHandler {
      */
     public FunctionHandler(@NotNull List<Func<?>> functions) {
         this.functions = functions;
+        for (Func<?> func : functions)
+            index(func);
 
         // Default functions
 
@@ -64,13 +81,11 @@ public class FunctionHandler implements IHandler {
      * @return If the function was found and ran.
      */
     public boolean runFunction(String name, KamiState state, Object... args) {
-        for (Func<?> func : functions) {
-            if (func.getName().equals(name) && func.matchParams(args)) {
-                func.run(state, args);
-                return true;
-            }
-        }
-        return false;
+        Func<?> func = getFunction(name, args);
+        if (func == null) return false;
+
+        func.run(state, args);
+        return true;
     }
 
     /**
@@ -81,11 +96,31 @@ public class FunctionHandler implements IHandler {
      * @return The functions with the given name.
      */
     public List<Func<?>> getFunctionByName(String name) {
-        return functions.stream().filter(func -> func.getName().equals(name)).collect(Collectors.toList());
+        synchronized (byName) {
+            List<Func<?>> funcs = byName.get(name);
+            return funcs != null ? new ArrayList<>(funcs) : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Get functions with the given name and amount of parameters.
+     * <br>
+     *
+     * @param name  The name of the function.
+     * @param arity The amount of parameters.
+     * @return The functions, in the order they were added.
+     */
+    public List<Func<?>> getFunctions(String name, int arity) {
+        synchronized (byName) {
+            List<Func<?>> funcs = byArity.get(new Signature(name, arity));
+            return funcs != null ? new ArrayList<>(funcs) : Collections.emptyList();
+        }
     }
 
     /**
      * Get a function with the given name and arguments.
+     * The first added function matching the arguments is used,
+     * and is cached for the argument types.
      * <br>
      *
      * @param name The name of the function.
@@ -93,27 +128,89 @@ public class FunctionHandler implements IHandler {
      * @return The function if found, otherwise null.
      */
     public @Nullable Func<?> getFunction(String name, Object... args) {
-        for (Func<?> func : functions) {
-            if (func.getName().equals(name) && func.matchParams(args))
-                return func;
-        }
+        Signature signature = Signature.of(name, args);
+        // Null arguments have no type to cache by
+        if (signature == null) return findFunction(name, args);
+
+        return resolved.computeIfAbsent(signature, sig -> Optional.ofNullable(findFunction(name, args))).orElse(null);
+    }
+
+    private @Nullable Func<?> findFunction(String name, Object... args) {
+        for (Func<?> func : getFunctions(name, args.length))
+            if (func.matchParams(args)) return func;
         return null;
     }
 
     /**
      * Add a function to the handler.
+     * The parameter types of the function are resolved here.
      * <br>
      *
      * @param func The function to add.
      */
     public void addFunction(Func<?> func) {
         functions.add(func);
+        index(func);
+    }
+
+    private void index(Func<?> func) {
+        func.resolveParameterTypes();
+        synchronized (byName) {
+            byName.computeIfAbsent(func.getName(), k -> new ArrayList<>()).add(func);
+            byArity.computeIfAbsent(new Signature(func.getName(), func.resolveParameterTypes().size()), k -> new ArrayList<>()).add(func);
+        }
+        // A new function can be an earlier match for a cached signature
+        resolved.clear();
+    }
+
+    /**
+     * A function name with an amount of parameters, or the types of the arguments.
+     */
+    private static class Signature {
+        private final String name;
+        private final int arity;
+        private final @Nullable Class<?>[] types;
+        private final int hash;
+
+        Signature(String name, int arity) {
+            this(name, arity, null);
+        }
+
+        private Signature(String name, int arity, @Nullable Class<?>[] types) {
+            this.name = name;
+            this.arity = arity;
+            this.types = types;
+            this.hash = (name.hashCode() * 31 + arity) * 31 + Arrays.hashCode(types);
+        }
+
+        static @Nullable Signature of(String name, Object[] args) {
+            Class<?>[] types = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null) return null;
+                types[i] = args[i].getClass();
+            }
+            return new Signature(name, args.length, types);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Signature)) return false;
+            Signature other = (Signature) o;
+            return hash == other.hash && arity == other.arity && name.equals(other.name) && Arrays.equals(types, other.types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     @Getter
     public static abstract class Func<RETURN> {
         private final String name;
         private final String description;
+        @Getter(AccessLevel.NONE)
+        private volatile @Nullable List<Class<?>> resolvedTypes;
 
         public Func(String name, String description) {
             this.name = name;
@@ -132,6 +229,18 @@ public class FunctionHandler implements IHandler {
 
         public abstract List<Class<?>> getParameterTypes();
 
+        /**
+         * Get the parameter types, resolved once with {@link #getParameterTypes()}.
+         * <br>
+         *
+         * @return The parameter types.
+         */
+        public List<Class<?>> resolveParameterTypes() {
+            List<Class<?>> types = resolvedTypes;
+            if (types == null) resolvedTypes = types = getParameterTypes();
+            return types;
+        }
+
         /**
          * Check if the given arguments match the parameter types.
          * <br>
@@ -140,10 +249,10 @@ public class FunctionHandler implements IHandler {
          * @return If the arguments match the parameter types.
          */
         public boolean matchParams(Object... args) {
-            List<Class<?>> types = getParameterTypes();
+            List<Class<?>> types = resolveParameterTypes();
             if (types.size() != args.length) return false;
             for (int i = 0; i < args.length; i++)
-                if (!args[i].getClass().isAssignableFrom(types.get(i))) return false;
+                if (args[i] == null || !args[i].getClass().isAssignableFrom(types.get(i))) return false;
             return true;
         }
 
@@ -155,8 +264,9 @@ public class FunctionHandler implements IHandler {
          */
         public String generatePattern() {
             StringBuilder pattern = new StringBuilder(name + "(");
-            for (Class<?> type : getParameterTypes())
-                pattern.append("<").append(type.getSimpleName()).append(">").append(getParameterTypes().indexOf(type) == getParameterTypes().size() - 1 ? "" : ", ");
+            List<Class<?>> types = resolveParameterTypes();
+            for (int i = 0; i < types.size(); i++)
+                pattern.append("<").append(types.get(i).getSimpleName()).append(">").append(i == types.size() - 1 ? "" : ", ");
             return pattern.append(")").toString();
         }
     }
@@ -0,0 +1,62 @@
+package dk.tohjuler.mcutils.placeholder;
+
+import org.bukkit.OfflinePlayer;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A placeholder for slow sources, like economy balances or database stats.
+ * <br/>
+ * With {@link PlaceholderHandler#applyAsync(String, OfflinePlayer, Object...)} the keys are resolved in parallel, off the main thread.
+ * With the normal apply methods the loading value is used, so the text can be shown at once and updated when the value is ready.
+ */
+public interface AsyncPlaceholder extends IPlaceholder {
+
+    /**
+     * Check if the placeholder handles a key.
+     * <br/>
+     *
+     * @param key The key, including the % signs.
+     * @return If the key is handled by the placeholder.
+     */
+    boolean handles(String key);
+
+    /**
+     * Resolve the value of a key.
+     * This is called on the async executor of the handler, so it may block.
+     * <br/>
+     *
+     * @param key    The key, including the % signs.
+     * @param player The player to apply the placeholder to, can be null.
+     * @return The future value, null to keep the key.
+     */
+    CompletableFuture<String> resolveAsync(String key, @Nullable OfflinePlayer player);
+
+    /**
+     * Get the value to show while the key is resolving.
+     * Default is "...".
+     * <br/>
+     *
+     * @param key The key, including the % signs.
+     * @return The loading value, null to keep the key.
+     */
+    default @Nullable String getLoadingValue(String key) {
+        return "...";
+    }
+
+    @Override
+    default String apply(String input, @Nullable OfflinePlayer player) {
+        return PlaceholderTemplate.of(input).render(key -> resolve(key, player));
+    }
+
+    @Override
+    default boolean resolvesKeys() {
+        return true;
+    }
+
+    @Override
+    default @Nullable String resolve(String key, @Nullable OfflinePlayer player) {
+        return handles(key) ? getLoadingValue(key) : null;
+    }
+}
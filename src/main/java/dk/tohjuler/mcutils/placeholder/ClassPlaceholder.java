@@ -4,26 +4,93 @@ import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A helper class for creating placeholders for a class.
  * <br/>
+ * Plain text keys are stored in a trie, so the input is scanned once
+ * and only the functions for the keys in the input are called.
+ * Each function is called at most once per apply.
+ * Keys with regex syntax are applied after, with a precompiled pattern.
+ * <br/>
  *
  * @param <T> The class type of the placeholder.
  */
 public class ClassPlaceholder<T> implements IClassPlaceholder<T> {
     private final Map<String, BiFunction<T, OfflinePlayer, String>> placeholders = new HashMap<>();
+    /// The plain text keys.
+    private final Node<T> trie = new Node<>();
+    /// The compiled regex keys, in the order they are registered.
+    private final Map<String, Pattern> regexKeys = new LinkedHashMap<>();
+    /// If all keys are template keys, see {@link PlaceholderTemplate#isTemplateKey(String)}.
+    private boolean templateKeys = true;
 
     @Override
     public String apply(T instance, String input, @Nullable OfflinePlayer player) {
-        return placeholders.entrySet().stream()
-                .reduce(input, (acc, entry) ->
-                                acc.replaceAll(entry.getKey(), entry.getValue().apply(instance, player)),
-                        String::concat
-                );
+        String result = replaceKeys(instance, input, player);
+        for (Map.Entry<String, Pattern> entry : regexKeys.entrySet()) {
+            Matcher matcher = entry.getValue().matcher(result);
+            if (matcher.find())
+                result = matcher.replaceAll(placeholders.get(entry.getKey()).apply(instance, player));
+        }
+        return result;
+    }
+
+    private String replaceKeys(T instance, String input, @Nullable OfflinePlayer player) {
+        if (trie.children.isEmpty()) return input;
+
+        StringBuilder builder = null;
+        Map<String, String> values = null;
+        int last = 0;
+        int i = 0;
+        while (i < input.length()) {
+            // Find the longest key starting at i
+            Node<T> node = trie;
+            Node<T> match = null;
+            int matchEnd = i;
+            for (int j = i; j < input.length(); j++) {
+                node = node.children.get(input.charAt(j));
+                if (node == null) break;
+                if (node.key != null) {
+                    match = node;
+                    matchEnd = j + 1;
+                }
+            }
+
+            if (match == null) {
+                i++;
+                continue;
+            }
+
+            if (builder == null) {
+                builder = new StringBuilder(input.length() + 16);
+                values = new HashMap<>();
+            }
+            Node<T> found = match;
+            String value = values.computeIfAbsent(found.key, key -> found.function.apply(instance, player));
+            builder.append(input, last, i).append(value);
+            last = i = matchEnd;
+        }
+
+        if (builder == null) return input;
+        return builder.append(input, last, input.length()).toString();
+    }
+
+    @Override
+    public boolean resolvesKeys() {
+        return templateKeys;
+    }
+
+    @Override
+    public @Nullable String resolve(T instance, String key, @Nullable OfflinePlayer player) {
+        BiFunction<T, OfflinePlayer, String> function = placeholders.get(key);
+        return function != null ? function.apply(instance, player) : null;
     }
 
     // Register
@@ -39,8 +106,7 @@ public class ClassPlaceholder<T> implements IClassPlaceholder<T> {
      * @return The ClassPlaceholder instance.
      */
     public ClassPlaceholder<T> register(String placeholder, Function<T, String> function) {
-        placeholders.put(placeholder, (ins, op) -> function.apply(ins));
-        return this;
+        return register(placeholder, (ins, op) -> function.apply(ins));
     }
 
     /**
@@ -54,6 +120,23 @@ public class ClassPlaceholder<T> implements IClassPlaceholder<T> {
      */
     public ClassPlaceholder<T> register(String placeholder, BiFunction<T, OfflinePlayer, String> function) {
         placeholders.put(placeholder, function);
+        if (PlaceholderTemplate.isLiteralKey(placeholder)) {
+            Node<T> node = trie;
+            for (int i = 0; i < placeholder.length(); i++)
+                node = node.children.computeIfAbsent(placeholder.charAt(i), c -> new Node<>());
+            node.key = placeholder;
+            node.function = function;
+        } else
+            regexKeys.put(placeholder, Pattern.compile(placeholder));
+
+        templateKeys &= PlaceholderTemplate.isTemplateKey(placeholder);
         return this;
     }
+
+    private static class Node<T> {
+        private final Map<Character, Node<T>> children = new HashMap<>();
+        /// The key ending at this node, or null.
+        private @Nullable String key;
+        private @Nullable BiFunction<T, OfflinePlayer, String> function;
+    }
 }
@@ -36,4 +36,50 @@ public interface IClassPlaceholder<T> {
             return input;
         }
     }
+
+    /**
+     * Checks if the placeholder can resolve single keys, with {@link #resolve(Object, String, OfflinePlayer)}.
+     * Placeholders that can't, are applied to the whole string after the keys are resolved.
+     * <br/>
+     *
+     * @return If the placeholder resolves keys.
+     */
+    default boolean resolvesKeys() {
+        return false;
+    }
+
+    /**
+     * Resolve the value of a single key, used by {@link PlaceholderTemplate}.
+     * <br/>
+     *
+     * @param instance The instance of the class to resolve the key from.
+     * @param key      The key, including the % signs.
+     * @param player   The player to apply the placeholder to, can be null.
+     * @return The value, or null if the key is not handled by the placeholder.
+     */
+    default @Nullable String resolve(T instance, String key, @Nullable OfflinePlayer player) {
+        return null;
+    }
+
+    /**
+     * A wrapper for the resolve method, that takes an object instead of a class.
+     * If the object is not an instance of the class, or the placeholder throws, it will return null,
+     * so the key is kept like {@link #applyFromObj(Object, String, OfflinePlayer)} keeps the input.
+     * <br/>
+     *
+     * @param instance The instance of the class to resolve the key from.
+     * @param key      The key, including the % signs.
+     * @param player   The player to apply the placeholder to, can be null.
+     * @return The value, or null if the key is not handled by the placeholder.
+     */
+    default @Nullable String resolveFromObj(Object instance, String key, @Nullable OfflinePlayer player) {
+        if (instance == null) return null;
+
+        try {
+            //noinspection unchecked
+            return resolve((T) instance, key, player);
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
@@ -16,4 +16,27 @@ public interface IPlaceholder {
      */
     String apply(String input, @Nullable OfflinePlayer player);
 
+    /**
+     * Checks if the placeholder can resolve single keys, with {@link #resolve(String, OfflinePlayer)}.
+     * Placeholders that can't, are applied to the whole string after the keys are resolved.
+     * <br/>
+     *
+     * @return If the placeholder resolves keys.
+     */
+    default boolean resolvesKeys() {
+        return false;
+    }
+
+    /**
+     * Resolve the value of a single key, used by {@link PlaceholderTemplate}.
+     * <br/>
+     *
+     * @param key    The key, including the % signs.
+     * @param player The player to apply the placeholder to, can be null.
+     * @return The value, or null if the key is not handled by the placeholder.
+     */
+    default @Nullable String resolve(String key, @Nullable OfflinePlayer player) {
+        return null;
+    }
+
 }
@@ -3,16 +3,28 @@ package dk.tohjuler.mcutils.placeholder;
 import dk.tohjuler.mcutils.placeholder.impl.PHObjectRef;
 import dk.tohjuler.mcutils.placeholder.impl.PlaceholderAPIHelper;
 import dk.tohjuler.mcutils.placeholder.impl.SimplePlaceholder;
+import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PlaceholderHandler {
+    private static final PHObjectRef OBJECT_REF = new PHObjectRef();
+    /// The default executor for async placeholders, bounded to 4 threads, created on first use.
+    private static @Nullable ExecutorService asyncPool;
+
     private final List<IPlaceholder> placeholders;
     private PlaceholderRegistry registry = PlaceholderRegistry.global();
+    private PlaceholderMetrics metrics = PlaceholderMetrics.global();
+    /// Null to use the shared pool, see {@link #shutdownAsyncExecutor()}.
+    private @Nullable Executor asyncExecutor;
+    /// Null to use the main thread of the server.
+    private @Nullable Executor syncExecutor;
 
     /**
      * Create a new PlaceholderHandler, with a list of placeholders.
@@ -45,6 +57,7 @@ public class PlaceholderHandler {
 
     /**
      * Apply the placeholders to the input string.
+     * The input is split into a cached {@link PlaceholderTemplate}, see {@link #apply(PlaceholderTemplate, OfflinePlayer, Object...)}.
      * <br/>
      *
      * @param input              The input string to apply the placeholders to.
@@ -53,27 +66,185 @@ public class PlaceholderHandler {
      * @return The input string with the placeholders applied.
      */
     public String apply(String input, @Nullable OfflinePlayer player, Object... placeholderObjects) {
-        String result = input;
+        return apply(PlaceholderTemplate.of(input), player, placeholderObjects);
+    }
+
+    /**
+     * Apply the placeholders to a template.
+     * <br/>
+     * The keys of the template are resolved in a single pass, by the placeholders that can resolve keys.
+     * Each key is resolved once, even if it is in the template more than once.
+     * The placeholders are checked in order, then the placeholder objects.
+     * After that, the placeholders that can't resolve keys, like regex and PlaceholderAPI placeholders,
+     * are applied to the whole string in order.
+     * <br/>
+     *
+     * @param template           The template to apply the placeholders to.
+     * @param player             The player to apply the placeholders to.
+     * @param placeholderObjects Object to apply placeholders from the class must be a subclass of IPlaceholder or be registered in the registry.
+     * @return The string with the placeholders applied.
+     */
+    public String apply(PlaceholderTemplate template, @Nullable OfflinePlayer player, Object... placeholderObjects) {
+        return apply(template, player, placeholderObjects, classPlaceholders(placeholderObjects), new HashMap<>());
+    }
+
+    /**
+     * Apply the placeholders to a list of strings, like the lore of an item.
+     * <br/>
+     * The value of each key is resolved once, and reused for all the strings.
+     * <br/>
+     *
+     * @param inputs             The strings to apply the placeholders to.
+     * @param player             The player to apply the placeholders to.
+     * @param placeholderObjects Object to apply placeholders from the class must be a subclass of IPlaceholder or be registered in the registry.
+     * @return A new list with the placeholders applied, in the same order.
+     */
+    public List<String> applyAll(List<String> inputs, @Nullable OfflinePlayer player, Object... placeholderObjects) {
+        IClassPlaceholder<?>[] classPlaceholders = classPlaceholders(placeholderObjects);
+        Map<String, String> values = new HashMap<>();
+
+        List<String> result = new ArrayList<>(inputs.size());
+        for (String input : inputs)
+            result.add(apply(PlaceholderTemplate.of(input), player, placeholderObjects, classPlaceholders, values));
+        return result;
+    }
+
+    /**
+     * Apply the placeholders to the input string, with the {@link AsyncPlaceholder}s resolved off the main thread.
+     * <br/>
+     * The keys handled by an async placeholder are resolved in parallel on the async executor.
+     * When all are done, the placeholders are applied on the main thread, with the resolved values.
+     * Keys that fail to resolve are kept as they are.
+     * <br/>
+     *
+     * @param input              The input string to apply the placeholders to.
+     * @param player             The player to apply the placeholders to.
+     * @param placeholderObjects Object to apply placeholders from the class must be a subclass of IPlaceholder or be registered in the registry.
+     * @return The input string with the placeholders applied, completed on the main thread.
+     */
+    public CompletableFuture<String> applyAsync(String input, @Nullable OfflinePlayer player, Object... placeholderObjects) {
+        PlaceholderTemplate template = PlaceholderTemplate.of(input);
+        Map<String, String> values = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Executor async = asyncExecutor != null ? asyncExecutor : asyncPool();
+
+        for (String key : new LinkedHashSet<>(template.getKeys())) {
+            AsyncPlaceholder placeholder = findAsync(key, placeholderObjects);
+            if (placeholder == null) continue;
+
+            futures.add(CompletableFuture
+                    .supplyAsync(() -> placeholder.resolveAsync(key, player), async)
+                    .thenCompose(future -> future != null ? future : CompletableFuture.completedFuture(null))
+                    .handle((value, e) -> {
+                        // ConcurrentHashMap can't hold null, the key is kept by putting it as its own value
+                        values.put(key, e == null && value != null ? value : key);
+                        return null;
+                    }));
+        }
+
+        Executor sync = syncExecutor != null ? syncExecutor : PlaceholderHandler::runOnMainThread;
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApplyAsync(v -> apply(template, player, placeholderObjects, classPlaceholders(placeholderObjects), new HashMap<>(values)), sync);
+    }
+
+    private @Nullable AsyncPlaceholder findAsync(String key, Object[] placeholderObjects) {
+        for (IPlaceholder placeholder : placeholders)
+            if (placeholder instanceof AsyncPlaceholder && ((AsyncPlaceholder) placeholder).handles(key))
+                return (AsyncPlaceholder) placeholder;
+        for (Object placeholderObject : placeholderObjects)
+            if (placeholderObject instanceof AsyncPlaceholder && ((AsyncPlaceholder) placeholderObject).handles(key))
+                return (AsyncPlaceholder) placeholderObject;
+        return null;
+    }
+
+    private static synchronized ExecutorService asyncPool() {
+        if (asyncPool == null)
+            asyncPool = Executors.newFixedThreadPool(4, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NotNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "McUtils-Placeholder-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        return asyncPool;
+    }
+
+    /**
+     * Shut down the shared pool used by {@link #applyAsync(String, OfflinePlayer, Object...)},
+     * call it when the plugin is disabled.
+     * The placeholders being resolved are finished, and a new pool is created if the handlers are used again.
+     */
+    public static synchronized void shutdownAsyncExecutor() {
+        if (asyncPool == null) return;
+        asyncPool.shutdown();
+        asyncPool = null;
+    }
+
+    private static void runOnMainThread(Runnable task) {
+        if (Bukkit.isPrimaryThread()) task.run();
+        else Bukkit.getScheduler().runTask(JavaPlugin.getProvidingPlugin(PlaceholderHandler.class), task);
+    }
+
+    /**
+     * Finds the class placeholder for each object.
+     * <br/>
+     *
+     * @param placeholderObjects The placeholder objects.
+     * @return The class placeholders, null for objects that are placeholders themselves.
+     */
+    private IClassPlaceholder<?>[] classPlaceholders(Object[] placeholderObjects) {
+        IClassPlaceholder<?>[] classPlaceholders = new IClassPlaceholder<?>[placeholderObjects.length];
+        for (int i = 0; i < placeholderObjects.length; i++) {
+            Object placeholderObject = placeholderObjects[i];
+            if (placeholderObject instanceof IPlaceholder) continue;
+
+            IClassPlaceholder<?> classPlaceholder = registry.getPlaceholder(placeholderObject.getClass()).orElse(null);
+            // No placeholder found, handle as object ref
+            classPlaceholders[i] = classPlaceholder != null ? classPlaceholder : OBJECT_REF;
+        }
+        return classPlaceholders;
+    }
+
+    private String apply(PlaceholderTemplate template, @Nullable OfflinePlayer player, Object[] placeholderObjects,
+                         IClassPlaceholder<?>[] classPlaceholders, Map<String, String> values) {
+        String result = template.getSource();
+        if (template.hasKeys())
+            result = template.render(key -> {
+                // A key can be in the template more than once, it is only resolved the first time
+                if (values.containsKey(key)) return values.get(key);
+
+                String value = resolve(key, player, placeholderObjects, classPlaceholders);
+                values.put(key, value);
+                return value;
+            });
+
         for (IPlaceholder placeholder : placeholders) {
+            if (placeholder.resolvesKeys()) continue;
+            long start = metrics.start();
             try {
                 result = placeholder.apply(result, player);
+                metrics.record(placeholder.getClass().getName(), start);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to apply placeholder from class " + placeholder.getClass().getSimpleName(), e);
             }
         }
 
         // Apply class placeholders
-        for (Object placeholderObject : placeholderObjects) {
+        for (int i = 0; i < placeholderObjects.length; i++) {
+            Object placeholderObject = placeholderObjects[i];
+            long start = metrics.start();
             try {
                 if (placeholderObject instanceof IPlaceholder) {
                     IPlaceholder placeholder = (IPlaceholder) placeholderObject;
+                    if (placeholder.resolvesKeys()) continue;
                     result = placeholder.apply(result, player);
-                } else if (registry.hasPlaceholder(placeholderObject.getClass())) {
-                    result = registry.applyFromClass(placeholderObject, result, player);
-                } else {
-                    // No placeholder found, handle as object ref
-                    result = new PHObjectRef().apply(placeholderObject, result, player);
-                }
+                } else if (!classPlaceholders[i].resolvesKeys())
+                    result = classPlaceholders[i].applyFromObj(placeholderObject, result, player);
+                else continue;
+                metrics.record(placeholderObject.getClass().getName(), start);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to apply placeholder object from class " + placeholderObject.getClass().getSimpleName(), e);
             }
@@ -82,6 +253,43 @@ public class PlaceholderHandler {
         return result;
     }
 
+    private @Nullable String resolve(String key, @Nullable OfflinePlayer player, Object[] placeholderObjects, IClassPlaceholder<?>[] classPlaceholders) {
+        long start = metrics.start();
+        try {
+            return resolveKey(key, player, placeholderObjects, classPlaceholders);
+        } finally {
+            metrics.record(key, start);
+        }
+    }
+
+    private @Nullable String resolveKey(String key, @Nullable OfflinePlayer player, Object[] placeholderObjects, IClassPlaceholder<?>[] classPlaceholders) {
+        for (IPlaceholder placeholder : placeholders) {
+            if (!placeholder.resolvesKeys()) continue;
+            try {
+                String value = placeholder.resolve(key, player);
+                if (value != null) return value;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to apply placeholder from class " + placeholder.getClass().getSimpleName(), e);
+            }
+        }
+
+        for (int i = 0; i < placeholderObjects.length; i++) {
+            Object placeholderObject = placeholderObjects[i];
+            try {
+                String value = null;
+                if (placeholderObject instanceof IPlaceholder) {
+                    IPlaceholder placeholder = (IPlaceholder) placeholderObject;
+                    if (placeholder.resolvesKeys()) value = placeholder.resolve(key, player);
+                } else if (classPlaceholders[i].resolvesKeys())
+                    value = classPlaceholders[i].resolveFromObj(placeholderObject, key, player);
+                if (value != null) return value;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to apply placeholder object from class " + placeholderObject.getClass().getSimpleName(), e);
+            }
+        }
+        return null;
+    }
+
     // Placeholder registration methods
     // ---
 
@@ -119,6 +327,22 @@ public class PlaceholderHandler {
         return this;
     }
 
+    /**
+     * Change the executors used by {@link #applyAsync(String, OfflinePlayer, Object...)}.
+     * Default is a shared pool of 4 threads, created on first use and stopped with {@link #shutdownAsyncExecutor()},
+     * and the main thread of the server.
+     * <br/>
+     *
+     * @param asyncExecutor The executor to resolve the async placeholders on.
+     * @param syncExecutor  The executor to apply the placeholders on, when the async placeholders are resolved.
+     * @return The PlaceholderHandler instance.
+     */
+    public PlaceholderHandler useExecutors(@NotNull Executor asyncExecutor, @NotNull Executor syncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.syncExecutor = syncExecutor;
+        return this;
+    }
+
     /**
      * Change the placeholder registry to use a custom one.
      * Default is the global registry.
@@ -132,6 +356,19 @@ public class PlaceholderHandler {
         return this;
     }
 
+    /**
+     * Change the metrics to record to.
+     * Default is the global metrics.
+     * <br/>
+     *
+     * @param metrics The metrics to use.
+     * @return The PlaceholderHandler instance.
+     */
+    public PlaceholderHandler usePlaceholderMetrics(@NotNull PlaceholderMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     // Static methods
 
     /**
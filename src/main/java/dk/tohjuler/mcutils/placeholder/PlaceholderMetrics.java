@@ -0,0 +1,290 @@
+package dk.tohjuler.mcutils.placeholder;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Counters and latency histograms for placeholders, per key or class, with classes keyed by their full name.
+ * <br/>
+ * Metrics are disabled by default, and cost a single volatile read when disabled.
+ * The latencies are kept in power of two buckets, so percentiles are the upper bound of their bucket.
+ * <br/>
+ * When a slow threshold is set, a placeholder is logged once when its p99 exceeds it,
+ * checked at most once a second per placeholder.
+ */
+public class PlaceholderMetrics {
+    /// Global instance of the PlaceholderMetrics.
+    private static final PlaceholderMetrics global = new PlaceholderMetrics();
+    /// The time between the slow checks of a placeholder, in nanoseconds.
+    private static final long CHECK_INTERVAL = 1_000_000_000L;
+
+    /**
+     * Get the global instance of the PlaceholderMetrics.
+     * <br/>
+     *
+     * @return The global instance of the PlaceholderMetrics.
+     */
+    public static PlaceholderMetrics global() {
+        return global;
+    }
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    @Getter
+    private volatile boolean enabled = false;
+    /// The p99 in microseconds to log placeholders at, -1 to disable.
+    @Getter
+    private volatile long slowThreshold = -1;
+    @Getter
+    @Setter
+    private Logger logger = Logger.getLogger("McUtils");
+
+    /**
+     * Enable or disable the metrics.
+     * <br/>
+     *
+     * @param enabled If the metrics should be recorded.
+     * @return The PlaceholderMetrics instance.
+     */
+    public PlaceholderMetrics setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * Set the p99 latency to log placeholders at.
+     * <br/>
+     *
+     * @param micros The latency in microseconds, -1 to disable.
+     * @return The PlaceholderMetrics instance.
+     */
+    public PlaceholderMetrics setSlowThreshold(long micros) {
+        this.slowThreshold = micros;
+        return this;
+    }
+
+    // Record
+    // ---
+
+    /**
+     * Start a measurement.
+     * <br/>
+     *
+     * @return The start time to pass to {@link #record(String, long)}, or 0 if disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a call of a placeholder.
+     * Does nothing if the metrics are disabled.
+     * <br/>
+     *
+     * @param name  The key or class of the placeholder.
+     * @param start The start time from {@link #start()}.
+     */
+    public void record(String name, long start) {
+        if (!enabled || start == 0) return;
+        long now = System.nanoTime();
+        long nanos = now - start;
+
+        Stats stat = stats.computeIfAbsent(name, key -> new Stats(key, now));
+        long count = stat.record(nanos);
+
+        long threshold = slowThreshold;
+        if (threshold >= 0 && !stat.reported && stat.shouldCheck(now)
+                && stat.getPercentile(0.99) > threshold * 1000) {
+            stat.reported = true;
+            logger.warning("Slow placeholder: " + name + ", p99 " + stat.getPercentile(0.99) / 1000 + "us over " + count + " calls");
+        }
+    }
+
+    // Read
+    // ---
+
+    /**
+     * Get the stats for a placeholder.
+     * <br/>
+     *
+     * @param name The key or class of the placeholder.
+     * @return The stats, or null if never recorded.
+     */
+    public @Nullable Stats getStats(String name) {
+        return stats.get(name);
+    }
+
+    /**
+     * Get the stats for all placeholders.
+     * <br/>
+     *
+     * @return The stats, by key or class.
+     */
+    public Map<String, Stats> getAllStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Get the placeholders with a p99 over the slow threshold.
+     * <br/>
+     *
+     * @return The names of the slow placeholders, slowest first.
+     */
+    public List<String> getSlow() {
+        long threshold = slowThreshold;
+        List<String> res = new ArrayList<>();
+        if (threshold < 0) return res;
+
+        for (Map.Entry<String, Stats> entry : stats.entrySet())
+            if (entry.getValue().getPercentile(0.99) > threshold * 1000) res.add(entry.getKey());
+        res.sort(Comparator.comparingLong((String name) -> stats.get(name).getPercentile(0.99)).reversed());
+        return res;
+    }
+
+    /**
+     * Remove all recorded stats.
+     */
+    public void reset() {
+        stats.clear();
+    }
+
+    /**
+     * Dump the stats as text, one placeholder per line, with the most total time first.
+     * <br/>
+     *
+     * @return The text.
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Stats stat : sorted())
+            builder.append(stat.getName())
+                    .append(": count=").append(stat.getCount())
+                    .append(", total=").append(stat.getTotalNanos() / 1000).append("us")
+                    .append(", mean=").append(stat.getMean() / 1000).append("us")
+                    .append(", p50=").append(stat.getPercentile(0.5) / 1000).append("us")
+                    .append(", p99=").append(stat.getPercentile(0.99) / 1000).append("us")
+                    .append(", max=").append(stat.getMax() / 1000).append("us")
+                    .append('\n');
+        return builder.toString();
+    }
+
+    /**
+     * Dump the stats as a JSON object, by key or class, with the times in microseconds.
+     * <br/>
+     *
+     * @return The JSON.
+     */
+    public String dumpJson() {
+        JsonObject json = new JsonObject();
+        for (Stats stat : sorted()) {
+            JsonObject obj = new JsonObject();
+            obj.addProperty("count", stat.getCount());
+            obj.addProperty("total", stat.getTotalNanos() / 1000);
+            obj.addProperty("mean", stat.getMean() / 1000);
+            obj.addProperty("p50", stat.getPercentile(0.5) / 1000);
+            obj.addProperty("p99", stat.getPercentile(0.99) / 1000);
+            obj.addProperty("max", stat.getMax() / 1000);
+            json.add(stat.getName(), obj);
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    private List<Stats> sorted() {
+        List<Stats> res = new ArrayList<>(stats.values());
+        res.sort(Comparator.comparingLong(Stats::getTotalNanos).reversed());
+        return res;
+    }
+
+    /**
+     * The recorded calls of a placeholder.
+     */
+    public static class Stats {
+        @Getter
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+        /// Bucket i holds the latencies below 2^i nanoseconds.
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private volatile boolean reported = false;
+        /// The time of the next slow check, from {@link System#nanoTime()}.
+        private final AtomicLong nextCheck;
+
+        private Stats(String name, long now) {
+            this.name = name;
+            this.nextCheck = new AtomicLong(now + CHECK_INTERVAL);
+        }
+
+        /**
+         * Checks if the slow check is due, only true for one of the threads recording at the time.
+         */
+        private boolean shouldCheck(long now) {
+            long next = nextCheck.get();
+            return now - next >= 0 && nextCheck.compareAndSet(next, now + CHECK_INTERVAL);
+        }
+
+        private long record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            totalNanos.add(nanos);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+
+            long current;
+            while (nanos > (current = max.get()))
+                if (max.compareAndSet(current, nanos)) break;
+            return count.incrementAndGet();
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Get the mean latency.
+         * <br/>
+         *
+         * @return The mean in nanoseconds.
+         */
+        public long getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : getTotalNanos() / count;
+        }
+
+        /**
+         * Get a percentile of the latency.
+         * <br/>
+         *
+         * @param percentile The percentile, from 0 to 1.
+         * @return The upper bound of the bucket with the percentile in nanoseconds, capped at the max.
+         */
+        public long getPercentile(double percentile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) total += buckets.get(i);
+            if (total == 0) return 0;
+
+            long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) return Math.min((1L << i) - 1, getMax());
+            }
+            return getMax();
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package dk.tohjuler.mcutils.placeholder;
 
-import lombok.Getter;
 import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A registry for class placeholders.
+ * <br/>
+ * A class uses the placeholder registered for the closest superclass, or else for one of its interfaces.
+ * The resolved placeholder is cached per class, and the cache is invalidated when a placeholder is registered or unregistered.
+ * The registry can be used from multiple threads.
  */
 public class PlaceholderRegistry {
     /// Global instance of the PlaceholderRegistry.
@@ -25,8 +36,15 @@ public class PlaceholderRegistry {
         return global;
     }
 
-    @Getter
-    private final Map<Class<?>, IClassPlaceholder<?>> registry = new HashMap<>();
+    private final Map<Class<?>, IClassPlaceholder<?>> registry = new ConcurrentHashMap<>();
+    /// Incremented on every change, to invalidate the resolved placeholders.
+    private final AtomicInteger version = new AtomicInteger();
+    private final ClassValue<AtomicReference<Resolved>> resolved = new ClassValue<AtomicReference<Resolved>>() {
+        @Override
+        protected AtomicReference<Resolved> computeValue(@NotNull Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
 
     /**
      * Register a placeholder for a class.
@@ -38,6 +56,7 @@ public class PlaceholderRegistry {
      */
     public <T> void registerPlaceholder(Class<T> clazz, IClassPlaceholder<T> placeholder) {
         registry.put(clazz, placeholder);
+        version.incrementAndGet();
     }
 
     /**
@@ -48,33 +67,76 @@ public class PlaceholderRegistry {
      */
     public void unregisterPlaceholder(Class<?> clazz) {
         registry.remove(clazz);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Get the registered placeholders.
+     * Use {@link #registerPlaceholder(Class, IClassPlaceholder)} and {@link #unregisterPlaceholder(Class)} to change them.
+     * <br/>
+     *
+     * @return An unmodifiable view of the placeholders, by the class they are registered for.
+     */
+    public Map<Class<?>, IClassPlaceholder<?>> getRegistry() {
+        return Collections.unmodifiableMap(registry);
     }
 
     /**
-     * Check if a class has a placeholder registered.
+     * Check if a class has a placeholder registered, for the class itself, a superclass or an interface.
      * <br/>
      *
      * @param clazz The class to check.
      * @return True if the class has a placeholder registered, false otherwise.
      */
     public boolean hasPlaceholder(Class<?> clazz) {
-        return registry.containsKey(clazz);
+        return resolve(clazz) != null;
     }
 
     /**
      * Get a placeholder by its class.
+     * If the class itself has no placeholder, the placeholder of a superclass or an interface is used.
      * <br/>
      *
      * @param clazz The class of the placeholder to get.
      * @return The placeholder, or null if it doesn't exist.
      */
     public <T> Optional<IClassPlaceholder<T>> getPlaceholder(Class<T> clazz) {
-        try {
-            //noinspection unchecked
-            return Optional.ofNullable((IClassPlaceholder<T>) registry.get(clazz));
-        } catch (Exception e) {
-            return Optional.empty();
+        //noinspection unchecked
+        return Optional.ofNullable((IClassPlaceholder<T>) resolve(clazz));
+    }
+
+    private @Nullable IClassPlaceholder<?> resolve(Class<?> clazz) {
+        AtomicReference<Resolved> ref = resolved.get(clazz);
+        int current = version.get();
+        Resolved cached = ref.get();
+        if (cached != null && cached.version == current) return cached.placeholder;
+
+        IClassPlaceholder<?> placeholder = findPlaceholder(clazz);
+        ref.set(new Resolved(current, placeholder));
+        return placeholder;
+    }
+
+    private @Nullable IClassPlaceholder<?> findPlaceholder(Class<?> clazz) {
+        // Check superclasses
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            IClassPlaceholder<?> placeholder = registry.get(current);
+            if (placeholder != null) return placeholder;
+        }
+
+        // Check interfaces, closest first
+        Queue<Class<?>> queue = new ArrayDeque<>();
+        Set<Class<?>> seen = new HashSet<>();
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass())
+            Collections.addAll(queue, current.getInterfaces());
+        while (!queue.isEmpty()) {
+            Class<?> iface = queue.poll();
+            if (!seen.add(iface)) continue;
+
+            IClassPlaceholder<?> placeholder = registry.get(iface);
+            if (placeholder != null) return placeholder;
+            Collections.addAll(queue, iface.getInterfaces());
         }
+        return null;
     }
 
     /**
@@ -87,11 +149,39 @@ public class PlaceholderRegistry {
      * @return The input string with the placeholders applied, or the input string if no placeholders were found.
      */
     public String applyFromClass(Object instance, String input, @Nullable OfflinePlayer player) {
+        return applyFromClass(instance, input, player, PlaceholderMetrics.global());
+    }
+
+    /**
+     * Apply placeholders from a class to an input string, and record the call to the metrics.
+     * <br/>
+     *
+     * @param instance A class instance to apply placeholders from.
+     * @param input    The input string to apply the placeholders to.
+     * @param player   The player to apply the placeholders to, can be null.
+     * @param metrics  The metrics to record to.
+     * @return The input string with the placeholders applied, or the input string if no placeholders were found.
+     */
+    public String applyFromClass(Object instance, String input, @Nullable OfflinePlayer player, PlaceholderMetrics metrics) {
         if (instance == null) return input;
         Optional<? extends IClassPlaceholder<?>> placeholder = getPlaceholder(instance.getClass());
-        if (placeholder.isPresent())
-            return placeholder.get().applyFromObj(instance, input, player);
+        if (placeholder.isPresent()) {
+            long start = metrics.start();
+            String res = placeholder.get().applyFromObj(instance, input, player);
+            metrics.record(instance.getClass().getName(), start);
+            return res;
+        }
 
         return input;
     }
+
+    private static class Resolved {
+        private final int version;
+        private final @Nullable IClassPlaceholder<?> placeholder;
+
+        private Resolved(int version, @Nullable IClassPlaceholder<?> placeholder) {
+            this.version = version;
+            this.placeholder = placeholder;
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package dk.tohjuler.mcutils.placeholder;
+
+import dk.tohjuler.mcutils.LruCache;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A string split once into literal text and %key% tokens.
+ * <br/>
+ * A template is rendered in a single pass, by looking up the value of each key.
+ * Keys can't contain whitespace, so a single % in the text is kept as it is.
+ * <br/>
+ * Use {@link #of(String)} to get a cached template.
+ */
+public final class PlaceholderTemplate {
+    private static final LruCache<String, PlaceholderTemplate> CACHE = new LruCache<>(1024);
+
+    @Getter
+    private final String source;
+    /// The literal text around the keys, always one longer than the keys.
+    private final String[] literals;
+    /// The keys, including the % signs.
+    private final String[] keys;
+
+    private PlaceholderTemplate(String source, String[] literals, String[] keys) {
+        this.source = source;
+        this.literals = literals;
+        this.keys = keys;
+    }
+
+    /**
+     * Gets the template for a string, from the cache if present.
+     * <br/>
+     *
+     * @param source The string.
+     * @return The template.
+     */
+    public static PlaceholderTemplate of(String source) {
+        return CACHE.computeIfAbsent(source, PlaceholderTemplate::compile);
+    }
+
+    /**
+     * Splits a string into a template, without caching it.
+     * <br/>
+     *
+     * @param source The string.
+     * @return The template.
+     */
+    public static PlaceholderTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+
+        int literalStart = 0;
+        int start = source.indexOf('%');
+        while (start != -1) {
+            int end = source.indexOf('%', start + 1);
+            if (end == -1) break;
+
+            if (end == start + 1 || containsWhitespace(source, start + 1, end)) {
+                // Not a key, the next % can still start one
+                start = end;
+                continue;
+            }
+
+            literals.add(source.substring(literalStart, start));
+            keys.add(source.substring(start, end + 1));
+            literalStart = end + 1;
+            start = source.indexOf('%', literalStart);
+        }
+        literals.add(source.substring(literalStart));
+
+        return new PlaceholderTemplate(source, literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /**
+     * Clears the cache of templates.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static boolean containsWhitespace(String str, int start, int end) {
+        for (int i = start; i < end; i++)
+            if (Character.isWhitespace(str.charAt(i))) return true;
+        return false;
+    }
+
+    /**
+     * Checks if a placeholder key is matched as plain text.
+     * Keys with regex syntax, other than '.', are matched as a regex.
+     * <br/>
+     *
+     * @param key The key.
+     * @return If the key is plain text.
+     */
+    public static boolean isLiteralKey(String key) {
+        for (int i = 0; i < key.length(); i++)
+            if ("\\^$|?*+()[]{}".indexOf(key.charAt(i)) != -1) return false;
+        return true;
+    }
+
+    /**
+     * Checks if a placeholder key can be found as a key in a template.
+     * It must be plain text, start and end with % and contain no whitespace or other % signs.
+     * <br/>
+     *
+     * @param key The key.
+     * @return If the key is a template key.
+     */
+    public static boolean isTemplateKey(String key) {
+        return key.length() > 2
+                && key.charAt(0) == '%'
+                && key.indexOf('%', 1) == key.length() - 1
+                && !containsWhitespace(key, 1, key.length() - 1)
+                && isLiteralKey(key);
+    }
+
+    // Render
+    // ---
+
+    /**
+     * Checks if the template has any keys.
+     * <br/>
+     *
+     * @return If the template has keys.
+     */
+    public boolean hasKeys() {
+        return keys.length > 0;
+    }
+
+    /**
+     * Gets the keys in the template, including the % signs.
+     * <br/>
+     *
+     * @return The keys, in the order they appear.
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * Renders the template.
+     * The values are not checked for placeholders again.
+     * <br/>
+     *
+     * @param lookup The lookup for the value of a key, returns null to keep the key.
+     * @return The rendered string.
+     */
+    public String render(Function<String, String> lookup) {
+        if (keys.length == 0) return source;
+
+        StringBuilder builder = new StringBuilder(source.length() + 16 * keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            builder.append(literals[i]);
+            String value = lookup.apply(keys[i]);
+            builder.append(value != null ? value : keys[i]);
+        }
+        return builder.append(literals[keys.length]).toString();
+    }
+}
@@ -0,0 +1,245 @@
+package dk.tohjuler.mcutils.placeholder.impl;
+
+import dk.tohjuler.mcutils.LruCache;
+import dk.tohjuler.mcutils.placeholder.IPlaceholder;
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A placeholder that caches the values of another placeholder, per player and key.
+ * By default it caches PlaceholderAPI placeholders.
+ * <br/>
+ * Each %key% is resolved on its own, and the value is kept for the time to live of its identifier.
+ * Keys are found like PlaceholderAPI does, so they can contain spaces, like %math_1 + 2%.
+ * The identifier is the part of the key before the first '_', like "vault" for %vault_eco_balance%.
+ * Keys the placeholder doesn't change are cached too, so they aren't looked up again.
+ * When caching PlaceholderAPI, {bracket} placeholders are applied afterwards, without caching.
+ * <br/>
+ * Use it in place of {@link PlaceholderAPIHelper}:
+ * <pre>
+ * new PlaceholderHandler().withPlaceholder(new CachingPlaceholderHandler().withTtl("vault", 5, TimeUnit.SECONDS))
+ * </pre>
+ */
+public class CachingPlaceholderHandler implements IPlaceholder {
+    private final IPlaceholder placeholder;
+    private final LruCache<Key, Entry> cache;
+    /// The time to live in nanoseconds per identifier.
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+    private volatile long defaultTtl = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Create a new cache for PlaceholderAPI placeholders, with up to 4096 values.
+     */
+    public CachingPlaceholderHandler() {
+        this(new PlaceholderAPIHelper(), 4096);
+    }
+
+    /**
+     * Create a new cache for a placeholder.
+     * <br/>
+     *
+     * @param placeholder The placeholder to cache the values of.
+     * @param maxSize     The max amount of values to keep.
+     */
+    public CachingPlaceholderHandler(IPlaceholder placeholder, int maxSize) {
+        this.placeholder = placeholder;
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    // Config
+    // ---
+
+    /**
+     * Set the time to live for identifiers without their own.
+     * Default is 1 second.
+     * <br/>
+     *
+     * @param ttl  The time to live, 0 to not cache.
+     * @param unit The unit of the time.
+     * @return The CachingPlaceholderHandler instance.
+     */
+    public CachingPlaceholderHandler withDefaultTtl(long ttl, TimeUnit unit) {
+        this.defaultTtl = unit.toNanos(ttl);
+        return this;
+    }
+
+    /**
+     * Set the time to live for an identifier.
+     * <br/>
+     *
+     * @param identifier The identifier, like "vault" for %vault_eco_balance%.
+     * @param ttl        The time to live, 0 to not cache.
+     * @param unit       The unit of the time.
+     * @return The CachingPlaceholderHandler instance.
+     */
+    public CachingPlaceholderHandler withTtl(String identifier, long ttl, TimeUnit unit) {
+        ttls.put(identifier, unit.toNanos(ttl));
+        return this;
+    }
+
+    // Apply
+    // ---
+
+    @Override
+    public String apply(String input, @Nullable OfflinePlayer player) {
+        String result = applyKeys(input, player);
+        if (placeholder instanceof PlaceholderAPIHelper && result.indexOf('{') != -1)
+            result = PlaceholderAPI.setBracketPlaceholders(player, result);
+        return result;
+    }
+
+    /**
+     * Resolves the %key% tokens with the same rule as PlaceholderAPI, %([^%]+)%.
+     * <br/>
+     *
+     * @param input  The input string.
+     * @param player The player to apply the placeholders to, can be null.
+     * @return The string with the cached values.
+     */
+    private String applyKeys(String input, @Nullable OfflinePlayer player) {
+        int start = input.indexOf('%');
+        if (start == -1) return input;
+
+        StringBuilder builder = new StringBuilder(input.length() + 16);
+        int last = 0;
+        while (start != -1) {
+            int end = input.indexOf('%', start + 1);
+            if (end == -1) break;
+            if (end == start + 1) { // %% is not a key, the second % can start one
+                start = end;
+                continue;
+            }
+
+            String key = input.substring(start, end + 1);
+            String value = resolve(key, player);
+            builder.append(input, last, start).append(value != null ? value : key);
+            last = end + 1;
+            start = input.indexOf('%', last);
+        }
+        return builder.append(input, last, input.length()).toString();
+    }
+
+    /**
+     * The keys are found by {@link #apply(String, OfflinePlayer)},
+     * as templates don't have keys with spaces.
+     * <br/>
+     *
+     * @return false
+     */
+    @Override
+    public boolean resolvesKeys() {
+        return false;
+    }
+
+    @Override
+    public @Nullable String resolve(String key, @Nullable OfflinePlayer player) {
+        String identifier = identifier(key);
+        long ttl = ttls.getOrDefault(identifier, defaultTtl);
+        if (ttl <= 0) return lookup(key, player);
+
+        Key cacheKey = new Key(player != null ? player.getUniqueId() : null, identifier, key);
+        long now = System.nanoTime();
+        Entry entry = cache.get(cacheKey);
+        if (entry != null && now - entry.expiresAt < 0) return entry.value;
+
+        String value = lookup(key, player);
+        cache.put(cacheKey, new Entry(value, now + ttl));
+        return value;
+    }
+
+    private @Nullable String lookup(String key, @Nullable OfflinePlayer player) {
+        String value = placeholder.apply(key, player);
+        return key.equals(value) ? null : value;
+    }
+
+    private static String identifier(String key) {
+        int end = key.indexOf('_');
+        return key.substring(1, end != -1 ? end : key.length() - 1);
+    }
+
+    // Invalidation
+    // ---
+
+    /**
+     * Remove all cached values for a player.
+     * <br/>
+     *
+     * @param player The UUID of the player, null for the values without a player.
+     */
+    public void invalidate(@Nullable UUID player) {
+        cache.removeIf(key -> Objects.equals(key.player, player));
+    }
+
+    /**
+     * Remove all cached values for an identifier, like when the data behind it changed.
+     * <br/>
+     *
+     * @param identifier The identifier, like "vault" for %vault_eco_balance%.
+     */
+    public void invalidateIdentifier(String identifier) {
+        cache.removeIf(key -> key.identifier.equals(identifier));
+    }
+
+    /**
+     * Remove the cached values for an identifier for a player.
+     * <br/>
+     *
+     * @param player     The UUID of the player, null for the values without a player.
+     * @param identifier The identifier, like "vault" for %vault_eco_balance%.
+     */
+    public void invalidate(@Nullable UUID player, String identifier) {
+        cache.removeIf(key -> Objects.equals(key.player, player) && key.identifier.equals(identifier));
+    }
+
+    /**
+     * Remove all cached values.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    // Holders
+    // ---
+
+    private static class Key {
+        private final @Nullable UUID player;
+        private final String identifier;
+        private final String key;
+
+        private Key(@Nullable UUID player, String identifier, String key) {
+            this.player = player;
+            this.identifier = identifier;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return key.equals(other.key) && Objects.equals(player, other.player);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + Objects.hashCode(player);
+        }
+    }
+
+    private static class Entry {
+        /// Null if the placeholder didn't change the key.
+        private final @Nullable String value;
+        private final long expiresAt;
+
+        private Entry(@Nullable String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
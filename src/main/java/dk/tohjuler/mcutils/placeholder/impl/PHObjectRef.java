@@ -1,40 +1,93 @@
 package dk.tohjuler.mcutils.placeholder.impl;
 
+import dk.tohjuler.mcutils.kami.ReflectionCache;
 import dk.tohjuler.mcutils.placeholder.IClassPlaceholder;
 import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * A placeholder implementation that allows the use of fields from an object as placeholders.
+ * <br/>
+ * Pattern: %&lt;instance simple classname&gt;.&lt;field&gt;%, fields can be nested like %Shop.owner.name%.
+ * Only the keys in the input are resolved, with the cached field accessors of {@link ReflectionCache}.
+ * Null values are shown as "null", unknown fields are kept as they are.
  */
 public class PHObjectRef implements IClassPlaceholder<Object> {
+    /// The start of the keys for a class, "%SimpleName.".
+    private static final ClassValue<String> PREFIXES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(@NotNull Class<?> type) {
+            return "%" + type.getSimpleName() + ".";
+        }
+    };
 
     @Override
     public String apply(Object obj, String input, @Nullable OfflinePlayer player) {
-        // pattern: %<instance simple classname>.<field>%
-        String res = input;
-        for (Map.Entry<String, String> entry : generateFieldsMap(obj).entrySet()) {
-            String placeholder = "%" + obj.getClass().getSimpleName() + "." + entry.getKey() + "%";
-            res = res.replace(placeholder, entry.getValue());
+        String prefix = PREFIXES.get(obj.getClass());
+        int start = input.indexOf(prefix);
+        if (start == -1) return input;
+
+        StringBuilder builder = new StringBuilder(input.length() + 16);
+        int last = 0;
+        while (start != -1) {
+            int end = input.indexOf('%', start + prefix.length());
+            if (end == -1) break;
+
+            String value = resolvePath(obj, input.substring(start + prefix.length(), end));
+            if (value == null) {
+                start = input.indexOf(prefix, start + 1);
+                continue;
+            }
+
+            builder.append(input, last, start).append(value);
+            last = end + 1;
+            start = input.indexOf(prefix, last);
         }
 
-        return res;
+        return builder.append(input, last, input.length()).toString();
+    }
+
+    @Override
+    public boolean resolvesKeys() {
+        return true;
     }
 
-    private Map<String, String> generateFieldsMap(Object obj) {
-        Map<String, String> fields = new HashMap<>();
-        for (Field field : obj.getClass().getDeclaredFields()) {
-            field.setAccessible(true);
+    @Override
+    public @Nullable String resolve(Object obj, String key, @Nullable OfflinePlayer player) {
+        String prefix = PREFIXES.get(obj.getClass());
+        if (!key.startsWith(prefix) || key.length() <= prefix.length()) return null;
+
+        return resolvePath(obj, key.substring(prefix.length(), key.length() - 1));
+    }
+
+    /**
+     * Resolves a path of fields, separated by '.'.
+     * <br/>
+     *
+     * @param obj  The object to start from.
+     * @param path The path, like "owner.name".
+     * @return The value as a string, or null if a field is not found.
+     */
+    private static @Nullable String resolvePath(Object obj, String path) {
+        Object current = obj;
+        int start = 0;
+        while (true) {
+            if (current == null) return "null";
+
+            int end = path.indexOf('.', start);
+            String name = path.substring(start, end == -1 ? path.length() : end);
+            ReflectionCache.FieldAccessor field = ReflectionCache.getField(current.getClass(), name);
+            if (field == null) return null;
+
             try {
-                fields.put(field.getName(), field.get(obj).toString());
-            } catch (IllegalAccessException ignored) {
+                current = field.get(current);
+            } catch (Exception e) {
+                return null;
             }
-        }
 
-        return fields;
+            if (end == -1) return String.valueOf(current);
+            start = end + 1;
+        }
     }
 }
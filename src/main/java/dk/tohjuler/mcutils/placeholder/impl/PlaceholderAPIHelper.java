@@ -8,6 +8,7 @@ import javax.annotation.Nullable;
 
 /**
  * A placeholder implementation that uses PlaceholderAPI to apply placeholders.
+ * The calls are recorded by the metrics of the {@link dk.tohjuler.mcutils.placeholder.PlaceholderHandler} applying it.
  */
 public class PlaceholderAPIHelper implements IPlaceholder {
     @Override
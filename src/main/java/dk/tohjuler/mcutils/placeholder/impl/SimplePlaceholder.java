@@ -1,17 +1,23 @@
 package dk.tohjuler.mcutils.placeholder.impl;
 
 import dk.tohjuler.mcutils.placeholder.IPlaceholder;
+import dk.tohjuler.mcutils.placeholder.PlaceholderTemplate;
 import org.bukkit.OfflinePlayer;
 
 import javax.annotation.Nullable;
+import java.util.regex.Pattern;
 
 /**
  * A simple placeholder implementation that replaces a placeholder in a string with a value.
- * Allows the use of regex for the placeholder.
+ * Allows the use of regex for the placeholder, see {@link PlaceholderTemplate#isLiteralKey(String)}.
+ * Placeholders without regex are replaced as plain text.
  */
 public class SimplePlaceholder implements IPlaceholder {
     private final String placeholder;
     private final String value;
+    /// Null if the placeholder is plain text.
+    private final @Nullable Pattern pattern;
+    private final boolean templateKey;
 
     /**
      * Create a new SimplePlaceholder.
@@ -23,10 +29,23 @@ public class SimplePlaceholder implements IPlaceholder {
     public SimplePlaceholder(String placeholder, String value) {
         this.placeholder = placeholder;
         this.value = value;
+        this.pattern = PlaceholderTemplate.isLiteralKey(placeholder) ? null : Pattern.compile(placeholder);
+        this.templateKey = PlaceholderTemplate.isTemplateKey(placeholder);
     }
 
     @Override
     public String apply(String input, @Nullable OfflinePlayer player) {
-        return input.replaceAll(placeholder, value);
+        if (pattern == null) return input.replace(placeholder, value);
+        return pattern.matcher(input).replaceAll(value);
+    }
+
+    @Override
+    public boolean resolvesKeys() {
+        return templateKey;
+    }
+
+    @Override
+    public @Nullable String resolve(String key, @Nullable OfflinePlayer player) {
+        return key.equals(placeholder) ? value : null;
     }
 }
@@ -1,20 +1,25 @@
 package dk.tohjuler.mcutils.strings;
 
+import dk.tohjuler.mcutils.LruCache;
 import net.md_5.bungee.api.ChatColor;
 
 import java.awt.*;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 // Credit to M3II0
 // Original repo https://github.com/M3II0/Spigot-Color-Utils/blob/main/ColorUtils.java
 
 /**
  * A utility class for coloring strings.
+ * <br/>
+ * Strings are colorized in a single pass, that handles color codes, &amp;{#RRGGBB},
+ * &lt;#RRGGBB&gt;..&lt;/#RRGGBB&gt; and legacy &lt;&amp;c&gt;..&lt;/&amp;9&gt; gradients,
+ * and writes the hex color codes directly, without creating ChatColor objects.
+ * <br/>
+ * The results of {@link #colorize(String, char)} are cached, as the same config strings are colorized again and again.
  */
 public class ColorUtils {
 
@@ -24,25 +29,25 @@ public class ColorUtils {
      *
      * */
 
-    private static Method COLOR_FROM_CHAT_COLOR;
-    private static Method CHAT_COLOR_FROM_COLOR;
     private static final boolean hexSupport;
-    private static final Pattern gradient = Pattern.compile("<(#[A-Za-z0-9]{6})>(.*?)</(#[A-Za-z0-9]{6})>");
-
-    private static final Pattern legacyGradient = Pattern.compile("<(&[A-Za-z0-9])>(.*?)</(&[A-Za-z0-9])>");
-    private static final Pattern rgb = Pattern.compile("&\\{(#......)}");
+    private static final LruCache<CacheKey, String> cache = new LruCache<>(2048);
+    /// The legacy color codes, as in the '&' codes.
+    private static final String CODES = "0123456789AaBbCcDdEeFfKkLlMmNnOoRrXx";
+    /// The rgb values of the legacy colors 0-9 and a-f.
+    private static final int[] LEGACY_RGB = {
+            0x000000, 0x0000AA, 0x00AA00, 0x00AAAA, 0xAA0000, 0xAA00AA, 0xFFAA00, 0xAAAAAA,
+            0x555555, 0x5555FF, 0x55FF55, 0x55FFFF, 0xFF5555, 0xFF55FF, 0xFFFF55, 0xFFFFFF
+    };
 
     static {
+        boolean hex;
         try {
-            //noinspection JavaReflectionMemberAccess
-            COLOR_FROM_CHAT_COLOR = ChatColor.class.getDeclaredMethod("getColor");
-            //noinspection JavaReflectionMemberAccess
-            CHAT_COLOR_FROM_COLOR = ChatColor.class.getDeclaredMethod("of", Color.class);
-        } catch (NoSuchMethodException e) {
-            COLOR_FROM_CHAT_COLOR = null;
-            CHAT_COLOR_FROM_COLOR = null;
+            MethodHandles.publicLookup().findStatic(ChatColor.class, "of", MethodType.methodType(ChatColor.class, Color.class));
+            hex = true;
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            hex = false;
         }
-        hexSupport = CHAT_COLOR_FROM_COLOR != null;
+        hexSupport = hex;
     }
 
     /*
@@ -64,6 +69,7 @@ public class ColorUtils {
 
     /**
      * Colorize a string, with a custom color symbol
+     * The result is cached.
      * <br/>
      *
      * @param text        The text to colorize
@@ -71,37 +77,43 @@ public class ColorUtils {
      * @return The colorized text
      */
     public static String colorize(String text, char colorSymbol) {
-        Matcher g = gradient.matcher(text);
-        Matcher l = legacyGradient.matcher(text);
-        Matcher r = rgb.matcher(text);
-        while (g.find()) {
-            Color start = Color.decode(g.group(1));
-            String between = g.group(2);
-            Color end = Color.decode(g.group(3));
-            if (hexSupport) text = text.replace(g.group(0), rgbGradient(between, start, end, colorSymbol));
-            else text = text.replace(g.group(0), between);
-        }
-        while (l.find()) {
-            char first = l.group(1).charAt(1);
-            String between = l.group(2);
-            char second = l.group(3).charAt(1);
-            ChatColor firstColor = ChatColor.getByChar(first);
-            ChatColor secondColor = ChatColor.getByChar(second);
-            if (firstColor == null) firstColor = ChatColor.WHITE;
-            if (secondColor == null) secondColor = ChatColor.WHITE;
-            if (hexSupport)
-                text = text.replace(l.group(0), rgbGradient(between, fromChatColor(firstColor), fromChatColor(secondColor), colorSymbol));
-            else text = text.replace(l.group(0), between);
-        }
-        while (r.find()) {
-            if (hexSupport) {
-                ChatColor color = fromColor(Color.decode(r.group(1)));
-                text = text.replace(r.group(0), color + "");
-            } else {
-                text = text.replace(r.group(0), "");
-            }
-        }
-        return ChatColor.translateAlternateColorCodes(colorSymbol, text);
+        return cache.computeIfAbsent(new CacheKey(text, colorSymbol), key -> colorizeUncached(text, colorSymbol));
+    }
+
+    /**
+     * Colorize a string, without the cache.
+     * Use this for strings that are rarely the same, like chat messages from players.
+     * <br/>
+     *
+     * @param text        The text to colorize
+     * @param colorSymbol The color symbol to use
+     * @return The colorized text
+     */
+    public static String colorizeUncached(String text, char colorSymbol) {
+        return colorizeUncached(text, colorSymbol, hexSupport);
+    }
+
+    /**
+     * Colorize a string, without the cache, as if the server did or did not support hex colors.
+     * <br/>
+     *
+     * @param text        The text to colorize
+     * @param colorSymbol The color symbol to use
+     * @param hex         If hex colors and gradients should be written
+     * @return The colorized text
+     */
+    static String colorizeUncached(String text, char colorSymbol, boolean hex) {
+        char[] chars = text.toCharArray();
+        StringBuilder builder = new StringBuilder(chars.length + 16);
+        scan(chars, 0, chars.length, colorSymbol, hex, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Clear the cache of colorized strings.
+     */
+    public static void clearCache() {
+        cache.clear();
     }
 
     /**
@@ -182,45 +194,185 @@ public class ColorUtils {
      *
      * */
 
-    private static String rgbGradient(String text, Color start, Color end, char colorSymbol) {
-        final StringBuilder builder = new StringBuilder();
-        text = ChatColor.translateAlternateColorCodes(colorSymbol, text);
-        final List<String> characters = charactersWithColors(text);
-        final double[] red = linear(start.getRed(), end.getRed(), characters.size());
-        final double[] green = linear(start.getGreen(), end.getGreen(), characters.size());
-        final double[] blue = linear(start.getBlue(), end.getBlue(), characters.size());
-        if (text.length() == 1) {
-            return fromColor(end) + text;
+    private static void scan(char[] chars, int from, int to, char colorSymbol, boolean hex, StringBuilder builder) {
+        int i = from;
+        while (i < to) {
+            char c = chars[i];
+            if (c == '<') {
+                int end = gradient(chars, i, to, colorSymbol, hex, builder);
+                if (end != -1) {
+                    i = end;
+                    continue;
+                }
+            } else if (c == '&' && i + 9 < to && chars[i + 1] == '{' && chars[i + 2] == '#' && chars[i + 9] == '}') {
+                int rgb = parseHex(chars, i + 3, 6);
+                if (rgb != -1) {
+                    if (hex) appendHex(builder, rgb);
+                    i += 10;
+                    continue;
+                }
+            }
+
+            if (c == colorSymbol && i + 1 < to && CODES.indexOf(chars[i + 1]) != -1) {
+                builder.append(ChatColor.COLOR_CHAR).append(Character.toLowerCase(chars[i + 1]));
+                i += 2;
+                continue;
+            }
+
+            builder.append(c);
+            i++;
         }
-        for (int i = 0; i < characters.size(); i++) {
-            String currentText = characters.get(i);
-            ChatColor current = fromColor(new Color((int) Math.round(red[i]), (int) Math.round(green[i]), (int) Math.round(blue[i])));
-            builder.append(current).append(currentText.replace("§r", ""));
+    }
+
+    /**
+     * Appends a gradient starting at the index, if there is one.
+     *
+     * @return The index after the closing tag, or -1 if there is no gradient.
+     */
+    private static int gradient(char[] chars, int start, int to, char colorSymbol, boolean hex, StringBuilder builder) {
+        // <#RRGGBB> or <&c>
+        boolean legacy;
+        int startRgb;
+        int textStart;
+        if (start + 8 < to && chars[start + 1] == '#' && chars[start + 8] == '>') {
+            legacy = false;
+            startRgb = parseHex(chars, start + 2, 6);
+            textStart = start + 9;
+        } else if (start + 3 < to && chars[start + 1] == '&' && isTagChar(chars[start + 2]) && chars[start + 3] == '>') {
+            legacy = true;
+            startRgb = legacyRgb(chars[start + 2]);
+            textStart = start + 4;
+        } else return -1;
+        if (startRgb == -1) return -1;
+
+        // The first closing tag, on the same line
+        int closeLength = legacy ? 5 : 10;
+        for (int i = textStart; i + closeLength <= to; i++) {
+            if (chars[i] == '\n' || chars[i] == '\r') return -1;
+            if (chars[i] != '<' || chars[i + 1] != '/' || chars[i + closeLength - 1] != '>') continue;
+
+            int endRgb;
+            if (legacy)
+                endRgb = chars[i + 2] == '&' && isTagChar(chars[i + 3]) ? legacyRgb(chars[i + 3]) : -1;
+            else
+                endRgb = chars[i + 2] == '#' ? parseHex(chars, i + 3, 6) : -1;
+            if (endRgb == -1) continue;
+
+            if (hex) appendGradient(chars, textStart, i, startRgb, endRgb, colorSymbol, builder);
+            else scan(chars, textStart, i, colorSymbol, false, builder);
+            return i + closeLength;
         }
-        return builder.toString();
+        return -1;
     }
 
-    private static double[] linear(double from, double to, int max) {
-        final double[] res = new double[max];
-        for (int i = 0; i < max; i++) {
-            res[i] = from + i * ((to - from) / (max - 1));
+    private static void appendGradient(char[] chars, int from, int to, int startRgb, int endRgb, char colorSymbol, StringBuilder builder) {
+        if (to - from == 1) {
+            appendHex(builder, endRgb);
+            builder.append(chars[from]);
+            return;
+        }
+
+        // Translate the color codes first, so the codes can be found by the color char alone
+        char[] text = new char[to - from];
+        System.arraycopy(chars, from, text, 0, text.length);
+        for (int i = 0; i < text.length - 1; i++) {
+            if (text[i] == colorSymbol && CODES.indexOf(text[i + 1]) != -1) {
+                text[i] = ChatColor.COLOR_CHAR;
+                text[i + 1] = Character.toLowerCase(text[i + 1]);
+            }
+        }
+
+        // Count the visible characters
+        int count = 0;
+        for (int i = 0; i < text.length; i++) {
+            if (text[i] == ChatColor.COLOR_CHAR) i++;
+            else count++;
+        }
+
+        // Each character gets its color, and the codes before it
+        StringBuilder codes = new StringBuilder();
+        boolean reading = false;
+        int index = 0;
+        for (int i = 0; i < text.length; i++) {
+            char c = text[i];
+            if (c == ChatColor.COLOR_CHAR) {
+                if (!reading) codes.setLength(0);
+                reading = true;
+                if (++i < text.length && text[i] != 'r') codes.append(ChatColor.COLOR_CHAR).append(text[i]);
+                continue;
+            }
+
+            reading = false;
+            appendHex(builder, count == 1 ? endRgb : interpolate(startRgb, endRgb, index++, count));
+            builder.append(codes).append(c);
         }
-        return res;
     }
 
-    private static Color fromChatColor(ChatColor color) {
-        try {
-            return (Color) COLOR_FROM_CHAT_COLOR.invoke(color);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+    private static int interpolate(int startRgb, int endRgb, int index, int count) {
+        return channel(startRgb >> 16 & 0xFF, endRgb >> 16 & 0xFF, index, count) << 16
+                | channel(startRgb >> 8 & 0xFF, endRgb >> 8 & 0xFF, index, count) << 8
+                | channel(startRgb & 0xFF, endRgb & 0xFF, index, count);
+    }
+
+    static int channel(int from, int to, int index, int count) {
+        // Rounded from + index * (to - from) / (count - 1)
+        int steps = count - 1;
+        return (2 * (from * steps + (to - from) * index) + steps) / (2 * steps);
+    }
+
+    private static void appendHex(StringBuilder builder, int rgb) {
+        builder.append(ChatColor.COLOR_CHAR).append('x');
+        for (int shift = 20; shift >= 0; shift -= 4)
+            builder.append(ChatColor.COLOR_CHAR).append(Character.forDigit(rgb >> shift & 0xF, 16));
+    }
+
+    /**
+     * Parses hex digits.
+     *
+     * @return The value, or -1 if not valid hex.
+     */
+    private static int parseHex(char[] chars, int start, int length) {
+        if (start + length > chars.length) return -1;
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = Character.digit(chars[i], 16);
+            if (digit == -1) return -1;
+            value = value << 4 | digit;
         }
+        return value;
     }
 
-    private static ChatColor fromColor(Color color) {
-        try {
-            return (ChatColor) CHAT_COLOR_FROM_COLOR.invoke(null, color);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+    private static boolean isTagChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * Gets the rgb value of a legacy color code, white for other codes.
+     */
+    private static int legacyRgb(char code) {
+        int index = code >= '0' && code <= '9' ? code - '0' : code >= 'a' && code <= 'f' ? code - 'a' + 10 : -1;
+        return index != -1 ? LEGACY_RGB[index] : 0xFFFFFF;
+    }
+
+    private static class CacheKey {
+        private final String text;
+        private final char colorSymbol;
+
+        private CacheKey(String text, char colorSymbol) {
+            this.text = text;
+            this.colorSymbol = colorSymbol;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey key = (CacheKey) o;
+            return colorSymbol == key.colorSymbol && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode() * 31 + colorSymbol;
         }
     }
 
@@ -1,15 +1,37 @@
 package dk.tohjuler.mcutils.kami;
 
+import dk.tohjuler.mcutils.kami.enums.KamiEngine;
 import dk.tohjuler.mcutils.kami.enums.LogLevel;
+import dk.tohjuler.mcutils.kami.errors.KamiError;
+import dk.tohjuler.mcutils.kami.handlers.IOutputHandler;
 import dk.tohjuler.mcutils.kami.handlers.TypeHandler;
+import dk.tohjuler.mcutils.kami.handlers.defaults.FunctionHandler;
+import dk.tohjuler.mcutils.kami.storage.TypeItem;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class KamiTest {
+    public static int testField = 0;
+
     private final KamiParser defaultDebugParser = new KamiBuilder()
             .useDefaultStorage(st -> st.set("logLevel", LogLevel.DEBUG.name()))
             .useDebugExps()
@@ -46,17 +68,101 @@ public class KamiTest {
         assertEquals("Hello", defaultDebugParser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTestList().get(0)").asString());
     }
 
+    @SuppressWarnings("DataFlowIssue")
+    @Test
+    public void testMethodOverloads() {
+        assertSame(int.class, ReflectionCache.findMethod(KamiTest.class, "overload", new Object[]{5}, true).getParameterTypes()[0]);
+        assertSame(CharSequence.class, ReflectionCache.findMethod(KamiTest.class, "overload", new Object[]{"a"}, true).getParameterTypes()[0]);
+        assertSame(Object.class, ReflectionCache.findMethod(KamiTest.class, "overload", new Object[]{1.5}, true).getParameterTypes()[0]);
+        assertEquals("int", defaultDebugParser.parse("dk.tohjuler.mcutils.kami.KamiTest.overload(5)").asString());
+    }
+
+    public static String overload(Object value) {
+        return "object";
+    }
+
+    public static String overload(int value) {
+        return "int";
+    }
+
+    public static String overload(CharSequence value) {
+        return "chars";
+    }
+
     @Test
     public void testSetter() {
         assertEquals("", defaultDebugParser.parse("#test = 5").asString());
         assertEquals("5", defaultDebugParser.getGlobalStorage().get("var:test").asString());
     }
 
+    @Test
+    public void testStaticFieldSetter() {
+        assertEquals("", defaultDebugParser.parse("dk.tohjuler.mcutils.kami.KamiTest.testField = 5").asString());
+        assertEquals(5, testField);
+    }
+
+    @Test
+    public void testObjectRefs() {
+        KamiState state = new KamiState(defaultDebugParser, null);
+        String ref = state.putObject("Hello");
+
+        assertEquals("obj:{0}", ref);
+        assertEquals("Hello", state.getObjFromRef(ref));
+        assertEquals(-1, KamiUtils.parseObjectHandle("obj:{a}"));
+        assertEquals(999999999, KamiUtils.parseObjectHandle("obj:{999999999}"));
+        assertEquals(-1, KamiUtils.parseObjectHandle("obj:{9999999999}"));
+        assertNull(state.getObjFromRef("obj:{1}"));
+    }
+
+    @Test
+    public void testEvaluateAsync() throws Exception {
+        KamiParser parser = new KamiBuilder()
+                .useMathExps()
+                .threadSafe()
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<CompletableFuture<TypeItem<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                futures.add(parser.evaluateAsync(i + " > 50", null, executor));
+
+            for (int i = 0; i < 100; i++)
+                assertEquals(String.valueOf(i > 50), futures.get(i).get().asString());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testThreadSafeFrozen() {
+        KamiParser parser = new KamiBuilder()
+                .useMathExps()
+                .threadSafe()
+                .build();
+
+        parser.addExpressions(new KamiBuilder().useDebugExps().build().getExpressions());
+    }
+
     @Test
     public void testFunc() {
         assertEquals("Hello, World!", defaultDebugParser.parse("testFunc()").asString());
     }
 
+    @Test
+    public void testFunctionOverloads() {
+        FunctionHandler handler = new FunctionHandler(new ArrayList<>());
+        handler.addFunction(new FunctionHandler.SingleFunc<Integer, String>("over", "Int overload.", i -> "int " + i) {
+        });
+        handler.addFunction(new FunctionHandler.SingleFunc<String, String>("over", "String overload.", str -> "str " + str) {
+        });
+
+        assertEquals("String overload.", handler.getFunction("over", "a").getDescription());
+        assertEquals("Int overload.", handler.getFunction("over", 1).getDescription());
+        assertSame(handler.getFunction("over", 2), handler.getFunction("over", 1));
+        assertNull(handler.getFunction("over", 1, 2));
+    }
+
     @Test
     public void testToStringExp() {
         defaultDebugParser.getGlobalStorage().set("var:test", "Hello, World!");
@@ -70,6 +176,174 @@ public class KamiTest {
         assertEquals("true", defaultMathParser.parse("10 > 5").asString());
     }
 
+    @Test
+    public void testCompiledReuse() {
+        CompiledKami compiled = defaultMathParser.getCompiled("10 > 5");
+        assertSame(compiled, defaultMathParser.getCompiled("10 > 5"));
+
+        assertEquals("true", defaultMathParser.execute(compiled, null, null).asString());
+        assertEquals("true", defaultMathParser.execute(compiled, null, null).asString());
+    }
+
+    @Test
+    public void testCompiledRecordsMisses() {
+        CompiledKami compiled = defaultMathParser.compile("true");
+        for (int i = 0; i < compiled.getExpressions().length; i++)
+            assertFalse(compiled.isKnownMiss(i, "true"));
+
+        assertEquals("true", defaultMathParser.execute(compiled, null, null).asString());
+        boolean anyMiss = false;
+        for (int i = 0; i < compiled.getExpressions().length; i++)
+            if (compiled.isKnownMiss(i, "true")) {
+                anyMiss = true;
+                assertFalse(compiled.matches(i));
+            }
+        assertTrue(anyMiss);
+        assertEquals("true", defaultMathParser.execute(compiled, null, null).asString());
+    }
+
+    // AST engine
+
+    private final KamiParser astParser = new KamiBuilder()
+            .useDebugExps()
+            .useMathExps()
+            .useAstEngine()
+            .build();
+
+    @Test
+    public void testAstMethodCallChain() {
+        assertEquals("Hello", astParser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTestList().get(0)").asString());
+        assertEquals("2", astParser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTestList().size()").asString());
+    }
+
+    @Test
+    public void testAstLogic() {
+        assertEquals("true", astParser.parse("5 == 5 && 10 > 5").asString());
+        assertEquals("true", astParser.parse("5 != 5 || !(1 > 2)").asString());
+        assertEquals("false", astParser.parse("true && 1 >= 2").asString());
+    }
+
+    @Test
+    public void testAstVariables() {
+        assertEquals("", astParser.parse("#astTest = 5").asString());
+        assertEquals("true", astParser.parse("#astTest == 5").asString());
+    }
+
+    @Test
+    public void testAstFallback() {
+        assertEquals("Hello, World!", astParser.parse("testFunc()").asString());
+        assertEquals("Hello World", astParser.parse("Hello World").asString());
+    }
+
+    @Test
+    public void testCodegen() {
+        KamiParser parser = new KamiBuilder()
+                .useDebugExps()
+                .useMathExps()
+                .useCodegen()
+                .build();
+
+        assertEquals("Hello, World!", parser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTest()").asString());
+        assertEquals("Hello", parser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTestList().get(0)").asString());
+        assertEquals("true", parser.parse("5 == 5 && (10 > 5 || false)").asString());
+        assertEquals("true", parser.parse("dk.tohjuler.mcutils.kami.KamiParser.staticTest().length() > 5").asString());
+    }
+
+    @Test
+    public void testCodegenNotApplicable() {
+        List<String> errors = new ArrayList<>();
+        KamiParser parser = new KamiBuilder()
+                .useDebugExps()
+                .useMathExps()
+                .useOutputHandler(new IOutputHandler() {
+                    @Override
+                    public void out(String message, @Nullable Player player) {
+                    }
+
+                    @Override
+                    public void err(KamiError error, @Nullable Player player) {
+                        errors.add(error.getMessage());
+                    }
+                })
+                .useCodegen()
+                .build();
+        parser.getGlobalStorage().set("var:singleArg", 5);
+
+        assertEquals("a", parser.parse("dk.tohjuler.mcutils.kami.KamiTest.single(\"a\")").asString());
+        assertNull(parser.parse("dk.tohjuler.mcutils.kami.KamiTest.single(5)").get());
+        assertNull(parser.parse("dk.tohjuler.mcutils.kami.KamiTest.single(#singleArg)").get());
+        assertEquals(2, errors.size());
+        for (String error : errors)
+            assertTrue(error, error.startsWith("Method not found: single"));
+    }
+
+    public static String single(String value) {
+        return value;
+    }
+
+    @Test
+    public void testEnginesSameOutput() {
+        List<String> outputs = assertEnginesSame(
+                () -> new KamiBuilder()
+                        .useDebugExps()
+                        .addExpression(new ShoutExp()),
+                "\"Hello\"",
+                "Hello World",
+                "5",
+                "true",
+                "engineTest",
+                "#engineTest",
+                "dk.tohjuler.mcutils.kami.KamiParser.staticTest()",
+                "shout(\"hi\")"
+        );
+        assertEquals(Arrays.asList("\"Hello\"", "Hello World", "5", "true", "engineTest", "5", "Hello, World!", "HI"), outputs);
+
+        assertEquals(
+                Arrays.asList("true", "false", "5"),
+                assertEnginesSame(() -> new KamiBuilder().useMathExps(), "5 == 5", "true && 1 >= 2", "5")
+        );
+    }
+
+    /**
+     * Parses the inputs with each engine, and checks the outputs are the same.
+     *
+     * @return The outputs.
+     */
+    private List<String> assertEnginesSame(Supplier<KamiBuilder> builder, String... inputs) {
+        List<String> first = null;
+        for (KamiEngine engine : KamiEngine.values()) {
+            KamiParser parser = builder.get()
+                    .useEngine(engine)
+                    .build();
+            parser.getGlobalStorage().set("var:engineTest", 5);
+
+            List<String> output = new ArrayList<>();
+            for (String input : inputs)
+                output.add(parser.parse(input).asString());
+
+            if (first == null) first = output;
+            else assertEquals("Engine " + engine, first, output);
+        }
+        return first;
+    }
+
+    private static class ShoutExp extends KamiExp {
+        public ShoutExp() {
+            super(
+                    Pattern.compile("shout\\(\"([^\"]*)\"\\)"),
+                    "shout(\"<text>\")",
+                    "Shout",
+                    KamiExp.Priority.HIGH,
+                    "Converts the text to upper case."
+            );
+        }
+
+        @Override
+        public @NotNull KamiResult execute(KamiState state, KamiResult result, Matcher matcher) {
+            return result.success(matcher.group(1).toUpperCase());
+        }
+    }
+
     // Typehandler
 
     @SuppressWarnings("DataFlowIssue")
@@ -84,4 +358,13 @@ public class KamiTest {
         assertSame(ArrayList.class, typeHandler.deserialize("[1, 2, 3]").getClass());
     }
 
+    @Test
+    public void testTypeHandlerLists() {
+        TypeHandler typeHandler = new TypeHandler();
+
+        assertEquals(Arrays.asList(1, "a, b", Arrays.asList(2, 3)), typeHandler.deserialize("[1, \"a, b\", [2, 3]]"));
+        assertEquals(Collections.emptyList(), typeHandler.deserialize("[]"));
+        assertSame(List.class, typeHandler.detectClass("[1]"));
+    }
+
 }
@@ -1,9 +1,19 @@
 package dk.tohjuler.mcutils.placeholder;
 
+import dk.tohjuler.mcutils.placeholder.impl.CachingPlaceholderHandler;
 import lombok.Getter;
+import org.bukkit.OfflinePlayer;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class PlaceholderTest {
 
@@ -31,6 +41,23 @@ public class PlaceholderTest {
         }
     }
 
+    @Test
+    public void testObjectRefNested() {
+        String res = new PlaceholderHandler()
+                .apply("%TestShop.owner.name% %TestShop.manager% %TestShop.unknown%", new TestShop(new TestObj("test"), null));
+        assertEquals("test null %TestShop.unknown%", res);
+    }
+
+    private static class TestShop {
+        private final TestObj owner;
+        private final TestObj manager;
+
+        public TestShop(TestObj owner, TestObj manager) {
+            this.owner = owner;
+            this.manager = manager;
+        }
+    }
+
     @Test
     public void testClassPlaceholder() {
         PlaceholderRegistry.global().registerPlaceholder(String.class, (instance, input, player) -> input.replace("%str%", instance));
@@ -65,4 +92,183 @@ public class PlaceholderTest {
                 .apply("%str% %str.upper% %str.lower%", "test value");
         assertEquals("test value TEST VALUE test value", res);
     }
+
+    @Test
+    public void testTemplate() {
+        PlaceholderTemplate template = PlaceholderTemplate.compile("100% of %a%, %b% and %c%%");
+        assertEquals(3, template.getKeys().size());
+
+        String res = new PlaceholderHandler()
+                .replace("%a%", "A")
+                .replace("%b%", "%a%")
+                .apply(template, null);
+        assertEquals("100% of A, %a% and %c%%", res);
+    }
+
+    @Test
+    public void testClassPlaceholderKeys() {
+        int[] calls = new int[1];
+        ClassPlaceholder<String> placeholder = new ClassPlaceholder<String>()
+                .register("%str%", str -> {
+                    calls[0]++;
+                    return str;
+                })
+                .register("%str.length%", str -> String.valueOf(str.length()))
+                .register("%str.unused%", str -> {
+                    throw new IllegalStateException("Not in the input");
+                })
+                .register("%str\\.[a-z]+%", str -> "regex");
+
+        String res = placeholder.apply("test", "%str% %str% %str.length% %str.other%", null);
+        assertEquals("test test 4 regex", res);
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testCachingPlaceholder() {
+        int[] calls = new int[1];
+        CachingPlaceholderHandler cache = new CachingPlaceholderHandler(
+                (input, player) -> {
+                    calls[0]++;
+                    return input.replace("%eco_balance%", "10");
+                },
+                16
+        ).withDefaultTtl(1, TimeUnit.MINUTES);
+        PlaceholderHandler handler = new PlaceholderHandler().withPlaceholder(cache);
+
+        assertEquals("10 %other%", handler.apply("%eco_balance% %other%"));
+        assertEquals("10 %other%", handler.apply("%eco_balance% %other%"));
+        assertEquals(2, calls[0]);
+
+        cache.invalidateIdentifier("eco");
+        assertEquals("10", handler.apply("%eco_balance%"));
+        assertEquals(3, calls[0]);
+    }
+
+    @Test
+    public void testCachingPlaceholderSpaces() {
+        int[] calls = new int[1];
+        CachingPlaceholderHandler cache = new CachingPlaceholderHandler(
+                (input, player) -> {
+                    calls[0]++;
+                    return input.replace("%math_1 + 2%", "3");
+                },
+                16
+        ).withDefaultTtl(1, TimeUnit.MINUTES);
+        PlaceholderHandler handler = new PlaceholderHandler().withPlaceholder(cache);
+
+        assertEquals("3 %other% 100%", handler.apply("%math_1 + 2% %other% 100%"));
+        assertEquals("3 %other% 100%", handler.apply("%math_1 + 2% %other% 100%"));
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void testApplyAll() {
+        int[] calls = new int[1];
+        PlaceholderRegistry registry = new PlaceholderRegistry();
+        registry.registerPlaceholder(String.class, new ClassPlaceholder<String>()
+                .register("%str%", str -> {
+                    calls[0]++;
+                    return str;
+                }));
+
+        assertEquals(
+                Arrays.asList("a test", "b test", "c"),
+                new PlaceholderHandler()
+                        .usePlaceholderRegistry(registry)
+                        .applyAll(Arrays.asList("a %str%", "b %str%", "c"), null, "test")
+        );
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testThrowingClassPlaceholder() {
+        PlaceholderRegistry registry = new PlaceholderRegistry();
+        registry.registerPlaceholder(String.class, new ClassPlaceholder<String>()
+                .register("%str%", str -> str)
+                .register("%str.fail%", str -> {
+                    throw new NullPointerException("Not set");
+                }));
+
+        assertEquals(
+                "test %str.fail%",
+                new PlaceholderHandler()
+                        .usePlaceholderRegistry(registry)
+                        .apply("%str% %str.fail%", null, "test")
+        );
+    }
+
+    @Test
+    public void testRepeatedKey() {
+        int[] calls = new int[1];
+        PlaceholderRegistry registry = new PlaceholderRegistry();
+        registry.registerPlaceholder(String.class, new ClassPlaceholder<String>()
+                .register("%str%", str -> {
+                    calls[0]++;
+                    return str;
+                }));
+
+        assertEquals(
+                "test and test",
+                new PlaceholderHandler()
+                        .usePlaceholderRegistry(registry)
+                        .apply("%str% and %str%", null, "test")
+        );
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testClassPlaceholderHierarchy() {
+        PlaceholderRegistry registry = new PlaceholderRegistry();
+        registry.registerPlaceholder(CharSequence.class, new ClassPlaceholder<CharSequence>()
+                .register("%seq.length%", seq -> String.valueOf(seq.length())));
+        PlaceholderHandler handler = new PlaceholderHandler().usePlaceholderRegistry(registry);
+
+        assertEquals("4", handler.apply("%seq.length%", new StringBuilder("test")));
+
+        registry.registerPlaceholder(StringBuilder.class, new ClassPlaceholder<StringBuilder>()
+                .register("%seq.length%", seq -> "builder"));
+        assertEquals("builder", handler.apply("%seq.length%", new StringBuilder("test")));
+    }
+
+    @Test
+    public void testAsyncPlaceholder() throws Exception {
+        AsyncPlaceholder balance = new AsyncPlaceholder() {
+            @Override
+            public boolean handles(String key) {
+                return key.equals("%balance%");
+            }
+
+            @Override
+            public CompletableFuture<String> resolveAsync(String key, OfflinePlayer player) {
+                return CompletableFuture.completedFuture("100");
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PlaceholderHandler handler = new PlaceholderHandler()
+                .withPlaceholder(balance)
+                .replace("%name%", "test")
+                .useExecutors(executor, Runnable::run);
+
+        assertEquals("test: ...", handler.apply("%name%: %balance%"));
+        assertEquals("test: 100", handler.applyAsync("%name%: %balance%", null).get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testMetrics() {
+        PlaceholderMetrics metrics = new PlaceholderMetrics().setEnabled(true).setSlowThreshold(0);
+        PlaceholderHandler handler = new PlaceholderHandler()
+                .replace("%test%", "test value")
+                .usePlaceholderMetrics(metrics);
+
+        for (int i = 0; i < 10; i++)
+            handler.apply("Hello, %test%!");
+
+        PlaceholderMetrics.Stats stats = metrics.getStats("%test%");
+        assertNotNull(stats);
+        assertEquals(10, stats.getCount());
+        assertTrue(metrics.dump().startsWith("%test%: count=10"));
+        assertTrue(metrics.dumpJson().contains("\"%test%\""));
+    }
 }
@@ -0,0 +1,71 @@
+package dk.tohjuler.mcutils.strings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColorUtilsTest {
+
+    @Test
+    public void testCodes() {
+        assertEquals("§aHi §lBold §xX §r", ColorUtils.colorizeUncached("&aHi &LBold &xX &R", '&', true));
+        assertEquals("§aHi §lBold §xX §r", ColorUtils.colorizeUncached("&aHi &LBold &xX &R", '&', false));
+        assertEquals("§aHi &zNo &", ColorUtils.colorizeUncached("&aHi &zNo &", '&', true));
+        assertEquals("§aHi &b", ColorUtils.colorizeUncached("$aHi &b", '$', true));
+    }
+
+    @Test
+    public void testHex() {
+        assertEquals("§x§f§f§8§8§0§0Orange", ColorUtils.colorizeUncached("&{#FF8800}Orange", '&', true));
+        assertEquals("Orange", ColorUtils.colorizeUncached("&{#FF8800}Orange", '&', false));
+        assertEquals("&{#GG8800}Bad", ColorUtils.colorizeUncached("&{#GG8800}Bad", '&', true));
+        assertEquals("&{#FF88}Short", ColorUtils.colorizeUncached("&{#FF88}Short", '&', true));
+    }
+
+    @Test
+    public void testGradient() {
+        assertEquals(
+                "§x§f§f§0§0§0§0a§x§8§0§0§0§8§0b§x§0§0§0§0§f§fc",
+                ColorUtils.colorizeUncached("<#FF0000>abc</#0000FF>", '&', true)
+        );
+        assertEquals("abc", ColorUtils.colorizeUncached("<#FF0000>abc</#0000FF>", '&', false));
+        assertEquals(
+                "§x§f§f§0§0§0§0§la§x§0§0§0§0§f§f§lb",
+                ColorUtils.colorizeUncached("<#FF0000>&lab</#0000FF>", '&', true)
+        );
+    }
+
+    @Test
+    public void testLegacyGradient() {
+        assertEquals(
+                "§x§f§f§5§5§5§5a§x§5§5§5§5§f§fb",
+                ColorUtils.colorizeUncached("<&c>ab</&9>", '&', true)
+        );
+        assertEquals("ab", ColorUtils.colorizeUncached("<&c>ab</&9>", '&', false));
+    }
+
+    @Test
+    public void testGradientEdges() {
+        // Empty
+        assertEquals("", ColorUtils.colorizeUncached("<#FF0000></#0000FF>", '&', true));
+        // A single character gets the end color
+        assertEquals("§x§0§0§0§0§f§fa", ColorUtils.colorizeUncached("<#FF0000>a</#0000FF>", '&', true));
+        assertEquals("§x§5§5§5§5§f§fa", ColorUtils.colorizeUncached("<&c>a</&9>", '&', true));
+        // The closing tag must be on the same line
+        assertEquals("<#FF0000>a\nb</#0000FF>", ColorUtils.colorizeUncached("<#FF0000>a\nb</#0000FF>", '&', true));
+        assertEquals("<§c>a\nb</§9>", ColorUtils.colorizeUncached("<&c>a\nb</&9>", '&', true));
+        // No closing tag
+        assertEquals("<#FF0000>ab", ColorUtils.colorizeUncached("<#FF0000>ab", '&', true));
+    }
+
+    @Test
+    public void testChannel() {
+        assertEquals(0, ColorUtils.channel(0, 255, 0, 5));
+        assertEquals(255, ColorUtils.channel(0, 255, 4, 5));
+        assertEquals(255, ColorUtils.channel(255, 0, 0, 5));
+        assertEquals(0, ColorUtils.channel(255, 0, 4, 5));
+        assertEquals(128, ColorUtils.channel(0, 255, 1, 3));
+        assertEquals(128, ColorUtils.channel(255, 0, 1, 3));
+        assertEquals(1, ColorUtils.channel(0, 1, 1, 3));
+    }
+}